@@ -0,0 +1,171 @@
+package com.inexas.oak;
+
+import com.inexas.oak.advisory.OakRuntimeException;
+
+/**
+ * The values of a set of Variables for one evaluation of an Expression.
+ * Values are stored by slot, primitives for z, f and bool variables so
+ * setting and reading them allocates nothing. Create one Bindings and reuse
+ * it, a Bindings is not thread safe so create one per thread.
+ *
+ * @see Variables
+ */
+public class Bindings {
+	private final Variables variables;
+	private final int[] ints;
+	private final float[] floats;
+	private final boolean[] booleans;
+	private final Object[] objects;
+
+	public Bindings(Variables variables) {
+		this.variables = variables;
+		final int size = variables.size();
+		ints = new int[size];
+		floats = new float[size];
+		booleans = new boolean[size];
+		objects = new Object[size];
+	}
+
+	/**
+	 * @return The Variables these are the bindings for.
+	 */
+	public Variables getVariables() {
+		return variables;
+	}
+
+	public void setInt(int slot, int value) {
+		assert variables.getType(slot) == DataType.z : variables.getName(slot);
+		ints[slot] = value;
+	}
+
+	public void setFloat(int slot, float value) {
+		assert variables.getType(slot) == DataType.f : variables.getName(slot);
+		floats[slot] = value;
+	}
+
+	public void setBoolean(int slot, boolean value) {
+		assert variables.getType(slot) == DataType.bool : variables.getName(slot);
+		booleans[slot] = value;
+	}
+
+	/**
+	 * Set the value of a variable of any type. Numbers are converted to the
+	 * variable's type if that can be done without loss.
+	 *
+	 * @param slot
+	 *            The variable's slot.
+	 * @param value
+	 *            The value to set. Primitive variables may not be set to null.
+	 * @throws OakRuntimeException
+	 *             Thrown if the value cannot be converted to the variable's
+	 *             type.
+	 */
+	public void set(int slot, Object value) throws OakRuntimeException {
+		final DataType type = variables.getType(slot);
+		try {
+			switch(type) {
+			case z:
+				ints[slot] = DataType.getInt(value);
+				break;
+
+			case f:
+				floats[slot] = DataType.getFloat(value);
+				break;
+
+			case bool:
+				booleans[slot] = ((Boolean)value).booleanValue();
+				break;
+
+			case any:
+				objects[slot] = value;
+				break;
+
+			case F:
+			case Z:
+			case cardinality:
+			case date:
+			case datetime:
+			case identifier:
+			case path:
+			case text:
+			case time:
+			default:
+				objects[slot] = DataType.convert(value, type.javaClass);
+			}
+		} catch(final Exception e) {
+			throw new OakRuntimeException(
+					"Invalid value for " + type + " variable " + variables.getName(slot) + ": " + value,
+					e);
+		}
+	}
+
+	/**
+	 * Set the value of a variable by name.
+	 *
+	 * @param name
+	 *            The name of the variable.
+	 * @param value
+	 *            The value to set.
+	 * @throws OakRuntimeException
+	 *             Thrown if the variable has not been declared or the value
+	 *             cannot be converted to its type.
+	 * @see #set(int, Object)
+	 */
+	public void set(String name, Object value) throws OakRuntimeException {
+		final int slot = variables.getSlot(name);
+		if(slot < 0) {
+			throw new OakRuntimeException("No such variable: " + name);
+		}
+		set(slot, value);
+	}
+
+	public int getInt(int slot) {
+		return ints[slot];
+	}
+
+	public float getFloat(int slot) {
+		return floats[slot];
+	}
+
+	public boolean getBoolean(int slot) {
+		return booleans[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            The variable's slot.
+	 * @return The value of the variable, boxed if it is a primitive.
+	 */
+	public Object get(int slot) {
+		final Object result;
+
+		switch(variables.getType(slot)) {
+		case z:
+			result = new Integer(ints[slot]);
+			break;
+
+		case f:
+			result = new Float(floats[slot]);
+			break;
+
+		case bool:
+			result = Boolean.valueOf(booleans[slot]);
+			break;
+
+		case F:
+		case Z:
+		case any:
+		case cardinality:
+		case date:
+		case datetime:
+		case identifier:
+		case path:
+		case text:
+		case time:
+		default:
+			result = objects[slot];
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,205 @@
+package com.inexas.oak;
+
+import com.inexas.oak.advisory.OakRuntimeException;
+
+/**
+ * A batch of rows for an Expression's Variables held as one column per
+ * variable. This lets an expression be evaluated over the whole batch with one
+ * tight loop per operator instead of one tree walk per row, see
+ * Expression.evaluateInts(Columns) etc.
+ *
+ * Columns are primitive arrays for the primitive types: int[] for z, float[]
+ * for f and a bitmap for bool. Everything else is an Object[]. A bitmap is a
+ * long[] with row n in bit n % 64 of word n / 64, the same layout that
+ * java.util.BitSet.valueOf(long[]) and toLongArray() use.
+ *
+ * The arrays are not copied so the same Columns can be refilled and reused
+ * from batch to batch.
+ */
+public class Columns {
+	private final Variables variables;
+	private final int size;
+	private final Object[] columns;
+
+	/**
+	 * @param variables
+	 *            The variables to hold columns for.
+	 * @param size
+	 *            The number of rows in the batch, columns may be longer.
+	 */
+	public Columns(Variables variables, int size) {
+		this.variables = variables;
+		this.size = size;
+		columns = new Object[variables.size()];
+	}
+
+	/**
+	 * @return The number of rows in the batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The Variables these are the columns for.
+	 */
+	public Variables getVariables() {
+		return variables;
+	}
+
+	public void setInts(int slot, int[] column) throws OakRuntimeException {
+		set(slot, DataType.z, column, column.length);
+	}
+
+	public void setFloats(int slot, float[] column) throws OakRuntimeException {
+		set(slot, DataType.f, column, column.length);
+	}
+
+	/**
+	 * @param slot
+	 *            The variable's slot.
+	 * @param bitmap
+	 *            The values as a bitmap, see the class comment.
+	 * @throws OakRuntimeException
+	 *             Thrown if the variable is not a bool or the bitmap is too
+	 *             short.
+	 */
+	public void setBooleans(int slot, long[] bitmap) throws OakRuntimeException {
+		set(slot, DataType.bool, bitmap, bitmap.length * 64);
+	}
+
+	public void setObjects(int slot, Object[] column) throws OakRuntimeException {
+		final DataType type = variables.getType(slot);
+		if(type == DataType.z || type == DataType.f || type == DataType.bool) {
+			throw new OakRuntimeException("Use the primitive column for " + variables.getName(slot));
+		}
+		set(slot, type, column, column.length);
+	}
+
+	public int[] getInts(int slot) {
+		return (int[])get(slot);
+	}
+
+	public float[] getFloats(int slot) {
+		return (float[])get(slot);
+	}
+
+	public long[] getBooleans(int slot) {
+		return (long[])get(slot);
+	}
+
+	public Object[] getObjects(int slot) {
+		return (Object[])get(slot);
+	}
+
+	/**
+	 * @param array
+	 *            An array to check.
+	 * @return True if the array is one of the columns.
+	 */
+	public boolean isColumn(Object array) {
+		boolean result = false;
+
+		for(final Object column : columns) {
+			if(column == array) {
+				result = true;
+				break;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Copy the values of one row into a Bindings. This is used for parts of an
+	 * expression that can't be evaluated a column at a time.
+	 *
+	 * @param row
+	 *            The row to copy.
+	 * @param bindings
+	 *            The Bindings to copy it to.
+	 */
+	public void bind(int row, Bindings bindings) {
+		final int count = columns.length;
+		for(int slot = 0; slot < count; slot++) {
+			switch(variables.getType(slot)) {
+			case z:
+				bindings.setInt(slot, getInts(slot)[row]);
+				break;
+
+			case f:
+				bindings.setFloat(slot, getFloats(slot)[row]);
+				break;
+
+			case bool:
+				bindings.setBoolean(slot, getBit(getBooleans(slot), row));
+				break;
+
+			case F:
+			case Z:
+			case any:
+			case cardinality:
+			case date:
+			case datetime:
+			case identifier:
+			case path:
+			case text:
+			case time:
+			default:
+				bindings.set(slot, getObjects(slot)[row]);
+			}
+		}
+	}
+
+	/**
+	 * @param size
+	 *            The number of rows.
+	 * @return A new, all false, bitmap large enough for size rows.
+	 */
+	public static long[] newBitmap(int size) {
+		return new long[(size + 63) >>> 6];
+	}
+
+	public static boolean getBit(long[] bitmap, int row) {
+		return (bitmap[row >>> 6] & (1L << row)) != 0;
+	}
+
+	public static void setBit(long[] bitmap, int row) {
+		bitmap[row >>> 6] |= 1L << row;
+	}
+
+	/**
+	 * Clear any bits in the last word of a bitmap beyond the last row. Word
+	 * at a time operations such as NOT set them.
+	 *
+	 * @param bitmap
+	 *            The bitmap to trim.
+	 * @param size
+	 *            The number of rows.
+	 */
+	public static void trim(long[] bitmap, int size) {
+		final int remainder = size & 63;
+		if(remainder != 0) {
+			bitmap[bitmap.length - 1] &= (1L << remainder) - 1;
+		}
+	}
+
+	private void set(int slot, DataType type, Object column, int length) throws OakRuntimeException {
+		if(variables.getType(slot) != type) {
+			throw new OakRuntimeException("Variable " + variables.getName(slot)
+					+ " is of type " + variables.getType(slot) + ", not " + type);
+		}
+		if(length < size) {
+			throw new OakRuntimeException("Column for " + variables.getName(slot) + " is too short");
+		}
+		columns[slot] = column;
+	}
+
+	private Object get(int slot) throws OakRuntimeException {
+		final Object result = columns[slot];
+		if(result == null) {
+			throw new OakRuntimeException("No column for variable: " + variables.getName(slot));
+		}
+		return result;
+	}
+}
@@ -40,6 +40,12 @@ public enum DataType {
 	public final boolean temporal;
 	public final Class<?> javaClass;
 	private final static Map<Class<?>, DataType> javaToDataType = new HashMap<>();
+	static {
+		// Enum constants are created before the static fields so this is safe
+		for(final DataType dataType : DataType.values()) {
+			javaToDataType.put(dataType.javaClass, dataType);
+		}
+	}
 
 	/**
 	 * This class is thrown if an attempt is made to convert a null to a
@@ -128,15 +134,6 @@ public enum DataType {
 	 */
 	@Nullable
 	public static DataType getDataType(Class<?> clazz) {
-		/*
-		 * This has to be done just-in-time as the javaToDataType is static and
-		 * can't be loaded as the enum is created.
-		 */
-		if(javaToDataType.isEmpty()) {
-			for(final DataType dataType : DataType.values()) {
-				javaToDataType.put(dataType.javaClass, dataType);
-			}
-		}
 		return javaToDataType.get(clazz);
 	}
 
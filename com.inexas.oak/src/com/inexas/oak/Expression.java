@@ -1,22 +1,103 @@
 package com.inexas.oak;
 
 import java.io.File;
+import java.util.Arrays;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import com.inexas.oak.advisory.OakException;
+import com.inexas.oak.advisory.*;
 import com.inexas.oak.ast.*;
 import com.inexas.tad.TadContext;
 
+/**
+ * An Expression is parsed once and can then be evaluated as often as required.
+ *
+ * Once constructed an Expression is immutable: symbols are resolved and
+ * constant subexpressions folded while parsing, and evaluation does not use the
+ * TadContext. A single instance can therefore be shared and evaluated by any
+ * number of threads at once. The only per-evaluation state is the Bindings (or
+ * Columns) that the caller passes in: use one per thread. Errors that occur
+ * during evaluation are thrown as OakRuntimeExceptions rather than reported to
+ * the Advisory.
+ */
 public class Expression extends AbstractOak {
+	private final static ExpressionCache cache = new ExpressionCache(1024);
 	private ExpressionNode rootNode;
+	private final Variables variables;
+
+	/**
+	 * Get a parsed expression from the process-wide cache, parsing it only if
+	 * it's not already there. Use this for expression strings that occur again
+	 * and again: the same immutable Expression is returned each time.
+	 *
+	 * @param string
+	 *            The expression to parse.
+	 * @param libraries
+	 *            Any function libraries the expression uses, they form part of
+	 *            the key.
+	 * @return The parsed expression.
+	 * @throws OakException
+	 *             Thrown if the expression contains errors.
+	 * @see #getCache()
+	 */
+	public static Expression cached(String string, Library... libraries) throws OakException {
+		return cache.get(string, null, libraries);
+	}
+
+	/**
+	 * @param string
+	 *            The expression to parse.
+	 * @param variables
+	 *            The variables that the expression may refer to, may be null.
+	 *            They form part of the key.
+	 * @param libraries
+	 *            Any function libraries the expression uses.
+	 * @return The parsed expression.
+	 * @throws OakException
+	 *             Thrown if the expression contains errors.
+	 * @see #cached(String, Library...)
+	 */
+	public static Expression cached(
+			String string,
+			Variables variables,
+			Library... libraries) throws OakException {
+		return cache.get(string, variables, libraries);
+	}
+
+	/**
+	 * @return The process-wide cache used by cached(), e.g. to read its hit
+	 *         rate or change its maximum size.
+	 */
+	public static ExpressionCache getCache() {
+		return cache;
+	}
 
 	public Expression(String string, Library... libraries) throws OakException {
+		this(string, null, libraries);
+	}
+
+	/**
+	 * Parse an expression that refers to variables. The variable names are
+	 * resolved to slots here so the expression can be evaluated against
+	 * different Bindings as often as required without re-parsing.
+	 *
+	 * @param string
+	 *            The expression to parse.
+	 * @param variables
+	 *            The variables that the expression may refer to, may be null.
+	 * @param libraries
+	 *            Any function libraries the expression uses.
+	 * @throws OakException
+	 *             Thrown if the expression contains errors.
+	 */
+	public Expression(String string, Variables variables, Library... libraries) throws OakException {
 		super(string, libraries);
+		this.variables = variables;
 		toExpression();
 	}
 
 	public Expression(File file) throws OakException {
 		super(file);
+		variables = null;
 		toExpression();
 	}
 
@@ -55,14 +136,208 @@ public class Expression extends AbstractOak {
 	 * @return The evaluated result.
 	 */
 	public ConstantNode evaluate() {
+		return evaluate(null);
+	}
+
+	/**
+	 * Evaluate the expression with a given set of values for its variables.
+	 *
+	 * @param bindings
+	 *            The values of the variables, null if the expression was
+	 *            parsed without variables.
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the bindings are not for this expression's
+	 *             variables.
+	 */
+	public ConstantNode evaluate(Bindings bindings) throws OakRuntimeException {
 		assert advisory.isEmpty() : advisory.getFirstError();
 		final ConstantNode result;
 
-		TadContext.pushAttach(advisory);
-		TadContext.pushAttach(registry);
-		result = rootNode.evaluate();
-		TadContext.detach(registry);
-		TadContext.detach(advisory);
+		checkBindings(bindings);
+		result = rootNode.evaluate(bindings);
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type z. The evaluation works on primitives
+	 * throughout so, unless the expression calls a function, nothing is
+	 * allocated.
+	 *
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type z.
+	 */
+	public int evaluateInt() throws OakRuntimeException {
+		return evaluateInt(null);
+	}
+
+	/**
+	 * Evaluate an expression of type z with a given set of values for its
+	 * variables.
+	 *
+	 * @param bindings
+	 *            The values of the variables, null if the expression was
+	 *            parsed without variables.
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type z or the bindings
+	 *             are not for this expression's variables.
+	 * @see #evaluateInt()
+	 */
+	public int evaluateInt(Bindings bindings) throws OakRuntimeException {
+		checkType(rootNode.getType() == DataType.z, "z");
+		checkBindings(bindings);
+		return rootNode.evaluateInt(bindings);
+	}
+
+	/**
+	 * Evaluate an expression of type f or z.
+	 *
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type f or z.
+	 * @see #evaluateInt()
+	 */
+	public float evaluateFloat() throws OakRuntimeException {
+		return evaluateFloat(null);
+	}
+
+	/**
+	 * Evaluate an expression of type f or z with a given set of values for its
+	 * variables.
+	 *
+	 * @param bindings
+	 *            The values of the variables, null if the expression was
+	 *            parsed without variables.
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type f or z or the
+	 *             bindings are not for this expression's variables.
+	 * @see #evaluateInt()
+	 */
+	public float evaluateFloat(Bindings bindings) throws OakRuntimeException {
+		final DataType type = rootNode.getType();
+		checkType(type == DataType.f || type == DataType.z, "f");
+		checkBindings(bindings);
+		return rootNode.evaluateFloat(bindings);
+	}
+
+	/**
+	 * Evaluate an expression of type bool.
+	 *
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type bool.
+	 * @see #evaluateInt()
+	 */
+	public boolean evaluateBoolean() throws OakRuntimeException {
+		return evaluateBoolean(null);
+	}
+
+	/**
+	 * Evaluate an expression of type bool with a given set of values for its
+	 * variables.
+	 *
+	 * @param bindings
+	 *            The values of the variables, null if the expression was
+	 *            parsed without variables.
+	 * @return The evaluated result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type bool or the bindings
+	 *             are not for this expression's variables.
+	 * @see #evaluateInt()
+	 */
+	public boolean evaluateBoolean(Bindings bindings) throws OakRuntimeException {
+		checkType(rootNode.getType() == DataType.bool, "bool");
+		checkBindings(bindings);
+		return rootNode.evaluateBoolean(bindings);
+	}
+
+	/**
+	 * Evaluate an expression of type z for every row in a batch. Where
+	 * possible the expression is evaluated a column at a time with one loop
+	 * per operator rather than one walk of the AST per row.
+	 *
+	 * @param columns
+	 *            The values of the variables, one column per variable.
+	 * @return The results, one per row.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type z or the columns
+	 *             are not for this expression's variables.
+	 */
+	public int[] evaluateInts(Columns columns) throws OakRuntimeException {
+		checkType(rootNode.getType() == DataType.z, "z");
+		checkColumns(columns);
+
+		final int[] result = rootNode.evaluateInts(columns);
+
+		// A bare variable returns its column, which may be longer than the batch
+		return columns.isColumn(result) ? Arrays.copyOf(result, columns.size()) : result;
+	}
+
+	/**
+	 * Evaluate an expression of type f or z for every row in a batch.
+	 *
+	 * @param columns
+	 *            The values of the variables, one column per variable.
+	 * @return The results, one per row.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type f or z or the
+	 *             columns are not for this expression's variables.
+	 * @see #evaluateInts(Columns)
+	 */
+	public float[] evaluateFloats(Columns columns) throws OakRuntimeException {
+		final DataType type = rootNode.getType();
+		checkType(type == DataType.f || type == DataType.z, "f");
+		checkColumns(columns);
+
+		final float[] result = rootNode.evaluateFloats(columns);
+
+		// A bare variable returns its column, which may be longer than the batch
+		return columns.isColumn(result) ? Arrays.copyOf(result, columns.size()) : result;
+	}
+
+	/**
+	 * Evaluate an expression of type bool for every row in a batch.
+	 *
+	 * @param columns
+	 *            The values of the variables, one column per variable.
+	 * @return The results as a bitmap, see Columns.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type bool or the columns
+	 *             are not for this expression's variables.
+	 * @see #evaluateInts(Columns)
+	 */
+	public long[] evaluateBooleans(Columns columns) throws OakRuntimeException {
+		checkType(rootNode.getType() == DataType.bool, "bool");
+		checkColumns(columns);
+
+		long[] result = rootNode.evaluateBooleans(columns);
+
+		if(columns.isColumn(result)) {
+			// Copy and trim any rows past the end of the batch
+			final int size = columns.size();
+			result = Arrays.copyOf(result, Columns.newBitmap(size).length);
+			Columns.trim(result, size);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compile the expression so that it can be evaluated repeatedly without
+	 * walking the AST. Symbols are resolved when the expression is parsed,
+	 * variables when the compiled expression is evaluated.
+	 *
+	 * @return The compiled expression.
+	 */
+	public CompiledExpression compile() {
+		assert advisory.isEmpty() : advisory.getFirstError();
+		final CompiledExpression result;
+
+		result = rootNode.compile();
 
 		return result;
 	}
@@ -82,30 +357,60 @@ public class Expression extends AbstractOak {
 		}
 
 		TadContext.pushAttach(advisory);
-		visitor.enter(this);
-		rootNode.accept(visitor);
-		visitor.exit(this);
-
-		TadContext.detach(advisory);
+		try {
+			visitor.enter(this);
+			rootNode.accept(visitor);
+			visitor.exit(this);
+		} finally {
+			TadContext.detach(advisory);
+		}
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
 	}
 
+	private void checkType(boolean ok, String expected) throws OakRuntimeException {
+		assert advisory.isEmpty() : advisory.getFirstError();
+
+		if(!ok) {
+			throw new OakRuntimeException(
+					"Expression is of type " + rootNode.getType() + ", not " + expected);
+		}
+	}
+
+	private void checkBindings(Bindings bindings) throws OakRuntimeException {
+		if(variables != null && (bindings == null || bindings.getVariables() != variables)) {
+			throw new OakRuntimeException("Bindings are not for this expression's variables");
+		}
+	}
+
+	private void checkColumns(Columns columns) throws OakRuntimeException {
+		if(variables != null && columns.getVariables() != variables) {
+			throw new OakRuntimeException("Columns are not for this expression's variables");
+		}
+	}
+
 	private void toExpression() throws OakException {
 		TadContext.pushAttach(advisory);
 		TadContext.pushAttach(registry);
-
-		final ParserRuleContext ruleContext = parser.expression();
-		if(advisory.isEmpty()) {
-			final ParseTreeWalker walker = new ParseTreeWalker();
-			final AntlrToAstVisitor visitor = new AntlrToAstVisitor();
-			walker.walk(visitor, ruleContext);
-			rootNode = (ExpressionNode)visitor.getRoot();
+		if(variables != null) {
+			TadContext.pushAttach(variables);
+		}
+		try {
+			final ParserRuleContext ruleContext = parse(OakParser::expression);
+			if(advisory.isEmpty()) {
+				final ParseTreeWalker walker = new ParseTreeWalker();
+				final AntlrToAstVisitor visitor = new AntlrToAstVisitor();
+				walker.walk(visitor, ruleContext);
+				rootNode = (ExpressionNode)visitor.getRoot();
+			}
+		} finally {
+			if(variables != null) {
+				TadContext.detach(variables);
+			}
+			TadContext.detach(registry);
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(registry);
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
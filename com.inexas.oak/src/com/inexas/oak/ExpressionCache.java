@@ -0,0 +1,199 @@
+package com.inexas.oak;
+
+import java.util.*;
+import com.inexas.oak.advisory.OakException;
+
+/**
+ * A size-bounded cache of parsed Expressions keyed on the source text, the
+ * Variables and the Libraries. Expressions are immutable once parsed so the
+ * same instance can be handed to any number of callers and threads. The least
+ * recently used entry is evicted when the cache is full.
+ *
+ * Expressions that fail to parse are not cached.
+ *
+ * @see Expression#cached(String, Library...)
+ */
+public class ExpressionCache {
+	private static class Key {
+		private final String text;
+		private final Variables variables;
+		private final Library[] libraries;
+		private final int hashCode;
+
+		Key(String text, Variables variables, Library[] libraries) {
+			this.text = text;
+			this.variables = variables;
+			this.libraries = libraries;
+			hashCode = (text.hashCode() * 31 + System.identityHashCode(variables)) * 31
+					+ Arrays.hashCode(libraries);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object rhsObject) {
+			final Key rhs = (Key)rhsObject;
+			return hashCode == rhs.hashCode
+					&& text.equals(rhs.text)
+					&& variables == rhs.variables
+					&& Arrays.equals(libraries, rhs.libraries);
+		}
+	}
+
+	private int maximumSize;
+	private final LinkedHashMap<Key, Expression> map;
+	private long hits, misses, evictions;
+
+	/**
+	 * @param maximumSize
+	 *            The maximum number of expressions to hold, must be greater
+	 *            than 0.
+	 */
+	public ExpressionCache(int maximumSize) {
+		checkSize(maximumSize);
+		this.maximumSize = maximumSize;
+		map = new LinkedHashMap<Key, Expression>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1874286128052935373L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Expression> eldest) {
+				final boolean result = size() > ExpressionCache.this.maximumSize;
+				if(result) {
+					evictions++;
+				}
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Get the parsed expression for some text, parsing it if it's not already
+	 * in the cache.
+	 *
+	 * @param text
+	 *            The expression to parse.
+	 * @param variables
+	 *            The variables that the expression may refer to, may be null.
+	 * @param libraries
+	 *            Any function libraries the expression uses.
+	 * @return The parsed expression.
+	 * @throws OakException
+	 *             Thrown if the expression contains errors.
+	 */
+	public Expression get(String text, Variables variables, Library... libraries) throws OakException {
+		Expression result;
+
+		final Key key = new Key(text, variables, libraries.clone());
+		synchronized(this) {
+			result = map.get(key);
+			if(result == null) {
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+
+		if(result == null) {
+			// Parse outside the lock, if another thread beats us use theirs
+			final Expression parsed = new Expression(text, variables, libraries);
+			synchronized(this) {
+				result = map.putIfAbsent(key, parsed);
+				if(result == null) {
+					result = parsed;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Change the maximum number of expressions held, evicting the least
+	 * recently used if there are now too many.
+	 *
+	 * @param maximumSize
+	 *            The new maximum, must be greater than 0.
+	 */
+	public synchronized void setMaximumSize(int maximumSize) {
+		checkSize(maximumSize);
+		this.maximumSize = maximumSize;
+		final Iterator<Key> iterator = map.keySet().iterator();
+		while(map.size() > maximumSize) {
+			iterator.next();
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return The maximum number of expressions held.
+	 */
+	public synchronized int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return The number of expressions currently held.
+	 */
+	public synchronized int getCount() {
+		return map.size();
+	}
+
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return The number of requests that had to parse the expression.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return The number of expressions removed because the cache was full.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return The fraction of requests answered from the cache, 0 if there
+	 *         have been no requests.
+	 */
+	public synchronized double getHitRate() {
+		final long total = hits + misses;
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/**
+	 * Remove all the expressions and reset the counters.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		hits = misses = evictions = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized String toString() {
+		return "ExpressionCache[" + map.size() + '/' + maximumSize
+				+ ", hits=" + hits
+				+ ", misses=" + misses
+				+ ", evictions=" + evictions + ']';
+	}
+
+	private void checkSize(int size) {
+		if(size <= 0) {
+			throw new IllegalArgumentException("Cache size must be greater than 0: " + size);
+		}
+	}
+}
@@ -11,6 +11,9 @@
 package com.inexas.oak;
 
 import java.io.Serializable;
+import java.lang.ref.*;
+import java.util.Arrays;
+import java.util.concurrent.*;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import com.inexas.oak.advisory.Advisory;
 import com.inexas.tad.TadContext;
@@ -22,15 +25,43 @@ import com.inexas.util.Text;
  * Identifiers are immutable.
  *
  * [A-Za-z_][A-Za-z0-9_]{1,32}
+ *
+ * As the characters are all ASCII they are stored one per byte, eight to a
+ * long, so most Identifiers need no array at all and are compared a word at
+ * a time.
  */
 public class Identifier implements Comparable<Identifier>, Serializable {
-	private static final long serialVersionUID = -7908114113413045720L;
+	private static final long serialVersionUID = 4126498542133578211L;
 	public final static int MAX_LENGTH = 32;
 	private final static byte FIRST = Text.ASCII_A_Z | Text.ASCII_a_z | Text.ASCII_UNDERLINE;
 	private final static byte SUBSEQUENT = FIRST | Text.ASCII_0_9;
 
-	private final char ca[];
-	private final int length;
+	/**
+	 * An entry in the intern pool. The Identifier is weakly referenced so it
+	 * can be collected once no document uses it, the entry is then removed.
+	 */
+	private static class Interned extends WeakReference<Identifier> {
+		final String key;
+
+		Interned(Identifier identifier, String key) {
+			super(identifier, collected);
+			this.key = key;
+		}
+	}
+
+	private final static ConcurrentMap<String, Interned> pool = new ConcurrentHashMap<>();
+	private final static ReferenceQueue<Identifier> collected = new ReferenceQueue<>();
+
+	/**
+	 * The first eight characters, one per byte with the first in the most
+	 * significant byte, padded with zero bytes. Compared as unsigned longs
+	 * this orders as the characters do.
+	 */
+	private final long head;
+	/** Any characters after the first eight packed the same way, or null */
+	private final long[] tail;
+	/** Cached hash code, zero until computed */
+	private transient int hash;
 
 	/**
 	 * Parse a string as an identifier. The whole of the string must be
@@ -87,14 +118,67 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 		return result;
 	}
 
+	/**
+	 * Return the single, shared, Identifier for a name. Names repeated many
+	 * times in a document, e.g. property names, can then share one Identifier
+	 * rather than each having their own copy; equals() between them is then a
+	 * reference comparison. The pool is safe to use from several threads and
+	 * holds Identifiers weakly so unused names don't accumulate.
+	 *
+	 * @param name
+	 *            The name, it must be a valid Identifier.
+	 * @return The Identifier.
+	 * @throws ParsingException
+	 *             Thrown if the name is not a valid Identifier.
+	 */
+	public static Identifier intern(CharSequence name) {
+		Identifier result = null;
+
+		// Remove the entries for Identifiers that have been collected...
+		Reference<? extends Identifier> reference;
+		while((reference = collected.poll()) != null) {
+			final Interned interned = (Interned)reference;
+			pool.remove(interned.key, interned);
+		}
+
+		final String key = name.toString();
+		if(key.length() > MAX_LENGTH) {
+			// Not pooled so the error is reported every time
+			result = new Identifier(key);
+		}
+
+		Identifier created = null;
+		while(result == null) {
+			final Interned existing = pool.get(key);
+			if(existing != null) {
+				result = existing.get();
+			}
+			if(result == null) {
+				// Not there or collected, add a new one...
+				if(created == null) {
+					created = new Identifier(key);
+				}
+				final Interned interned = new Interned(created, key);
+				if(existing == null
+						? pool.putIfAbsent(key, interned) == null
+						: pool.replace(key, existing, interned)) {
+					result = created;
+				}
+			}
+		}
+
+		return result;
+	}
+
 	public Identifier(String string) {
 		if(string == null || string.length() == 0) {
 			throw new ParsingException("new Identifier(null) called");
 		}
 		final Text t = new Text(string);
 		if(consume(t)) {
-			ca = t.toCharArray();
-			length = ca.length;
+			final char[] ca = t.toCharArray();
+			head = pack(ca, 0);
+			tail = packTail(ca);
 		} else {
 			throw new ParsingException("Invalid Identifier: " + string);
 		}
@@ -102,8 +186,9 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 
 	public Identifier(Identifier toCopy) {
 		try {
-			this.ca = toCopy.ca;
-			this.length = ca.length;
+			this.head = toCopy.head;
+			this.tail = toCopy.tail;
+			this.hash = toCopy.hash;
 		} catch(final NullPointerException e) {
 			throw new ParsingException("new Identifier(null) called");
 		}
@@ -115,15 +200,19 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 	 */
 	public Identifier(Text t) {
 		if(consume(t)) {
-			ca = t.toCharArray();
-			length = ca.length;
+			final char[] ca = t.toCharArray();
+			head = pack(ca, 0);
+			tail = packTail(ca);
 		} else {
 			throw new ParsingException("Invalid Identifier: " + t.getString(t.cursor()));
 		}
 	}
 
 	public int length() {
-		return length;
+		// The last word has at least one character, the rest are full
+		final int fullWords = tail == null ? 0 : tail.length;
+		final long last = fullWords == 0 ? head : tail[fullWords - 1];
+		return 8 * fullWords + 8 - Long.numberOfTrailingZeros(last) / 8;
 	}
 
 	/**
@@ -131,35 +220,45 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 	 */
 	@Override
 	public int compareTo(Identifier rhs) {
-		int result = 0;
+		int result = Long.compareUnsigned(head, rhs.head);
 
-		final int rhsLength = rhs.length;
-		final char[] rhsCa = rhs.ca;
-		final int count = length < rhsLength ? length : rhsLength;
-
-		for(int i = 0; i < count; i++) {
-			result = ca[i] - rhsCa[i];
-			if(result != 0) {
-				break;
+		if(result == 0) {
+			final int count = tail == null ? 0 : tail.length;
+			final int rhsCount = rhs.tail == null ? 0 : rhs.tail.length;
+			final int common = count < rhsCount ? count : rhsCount;
+			for(int i = 0; i < common; i++) {
+				result = Long.compareUnsigned(tail[i], rhs.tail[i]);
+				if(result != 0) {
+					break;
+				}
 			}
-		}
 
-		if(result == 0) {
-			result = length - rhsLength;
+			if(result == 0) {
+				// The one with more characters sorts last
+				result = count - rhsCount;
+			}
 		}
 
 		return result;
 	}
 
 	/**
+	 * The hash code is the same as that of the equivalent String, i.e.
+	 * identifier.hashCode() == identifier.toString().hashCode(). It is
+	 * computed the first time it is asked for and then cached.
+	 *
 	 * {@inheritDoc}
 	 */
 	@Override
 	public int hashCode() {
-		int result = 0;
+		int result = hash;
 
-		for(final char c : ca) {
-			result = result ^ c;
+		if(result == 0) {
+			final int length = length();
+			for(int i = 0; i < length; i++) {
+				result = 31 * result + get(i);
+			}
+			hash = result;
 		}
 
 		return result;
@@ -179,19 +278,7 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 		} else {
 			try {
 				final Identifier rhs = (Identifier)rhsObject;
-				if(length != rhs.length) {
-					result = false;
-				} else {
-					final char[] rhsCa = rhs.ca;
-
-					result = true;
-					for(int i = 0; i < length; i++) {
-						if(ca[i] != rhsCa[i]) {
-							result = false;
-							break;
-						}
-					}
-				}
+				result = head == rhs.head && Arrays.equals(tail, rhs.tail);
 			} catch(final ClassCastException e) {
 				result = false;
 			}
@@ -202,7 +289,11 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 
 	@Override
 	public String toString() {
-		return new String(ca);
+		final char[] result = new char[length()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = get(i);
+		}
+		return new String(result);
 	}
 
 	private static void error(int line, int column, String message) throws ParsingException {
@@ -220,7 +311,61 @@ public class Identifier implements Comparable<Identifier>, Serializable {
 	 * @return Return the character at the index. Or throw an exception.
 	 */
 	public char charAt(int index) {
-		return ca[index];
+		if(index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length());
+		}
+		return get(index);
+	}
+
+	private char get(int index) {
+		final long word = index < 8 ? head : tail[index / 8 - 1];
+		return (char)((word >>> (56 - 8 * (index % 8))) & 0xff);
+	}
+
+	/**
+	 * Pack up to eight characters into a long.
+	 *
+	 * @param ca
+	 *            The characters.
+	 * @param offset
+	 *            Where to start in ca.
+	 * @return The characters, the first in the most significant byte, padded
+	 *         with zero bytes.
+	 */
+	private static long pack(char[] ca, int offset) {
+		long result = 0;
+
+		final int end = Math.min(offset + 8, ca.length);
+		for(int i = offset; i < end; i++) {
+			final char c = ca[i];
+			if(c == 0 || c > 0xff) {
+				throw new ParsingException("Invalid Identifier: " + new String(ca));
+			}
+			result |= (long)c << (56 - 8 * (i - offset));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param ca
+	 *            The characters.
+	 * @return The characters after the first eight packed into longs or null
+	 *         if there are none.
+	 */
+	private static long[] packTail(char[] ca) {
+		final long[] result;
+
+		if(ca.length <= 8) {
+			result = null;
+		} else {
+			result = new long[(ca.length - 1) / 8];
+			for(int i = 0; i < result.length; i++) {
+				result[i] = pack(ca, 8 * (i + 1));
+			}
+		}
+
+		return result;
 	}
 
 }
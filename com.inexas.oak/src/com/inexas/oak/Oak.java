@@ -1,17 +1,77 @@
 package com.inexas.oak;
 
-import java.io.File;
+import java.io.*;
 import java.lang.reflect.Field;
+import java.nio.file.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import com.inexas.oak.advisory.OakException;
+import com.inexas.oak.advisory.*;
 import com.inexas.oak.ast.*;
 import com.inexas.oak.dialect.*;
 import com.inexas.oak.template.*;
 import com.inexas.tad.TadContext;
 
 public class Oak extends AbstractOak {
+	/**
+	 * The outcome of loading one file with loadAll(): the root of the object
+	 * tree if the file was loaded without errors and the file's own Advisory,
+	 * which may also hold warnings.
+	 *
+	 * @param <T>
+	 *            The type of the root of the object tree.
+	 */
+	public static class Result<T> {
+		private final Path path;
+		private final T root;
+		private final Advisory advisory;
+
+		Result(Path path, T root, Advisory advisory) {
+			this.path = path;
+			this.root = root;
+			this.advisory = advisory;
+		}
+
+		/**
+		 * @return The file loaded.
+		 */
+		public Path getPath() {
+			return path;
+		}
+
+		/**
+		 * @return The root of the object tree or null if there were errors.
+		 */
+		public T getRoot() {
+			return root;
+		}
+
+		/**
+		 * @return The messages reported while loading the file.
+		 */
+		public Advisory getAdvisory() {
+			return advisory;
+		}
+
+		/**
+		 * @return True if the file could not be loaded.
+		 */
+		public boolean hasErrors() {
+			return advisory.hasErrors();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return path + (advisory.hasErrors() ? ": " + advisory.getFirstError() : ": OK");
+		}
+	}
+
 	private Dialect dialectAst;
 	private PairNode rootNode;
 
@@ -51,6 +111,104 @@ public class Oak extends AbstractOak {
 		toAst();
 	}
 
+	/**
+	 * Load all the .oak files in a directory tree in parallel.
+	 *
+	 * @see #loadAll(Path, String, Rulebase, Executor)
+	 */
+	public static <T> Map<Path, Result<T>> loadAll(
+			Path directory,
+			Rulebase dialect,
+			Executor executor) throws IOException {
+		return loadAll(directory, "*.oak", dialect, executor);
+	}
+
+	/**
+	 * Load all the files in a directory tree whose names match a glob pattern
+	 * and transform each into an object tree. The files are parsed and
+	 * transformed in parallel, one task per file, on the given executor, e.g.
+	 * a ForkJoinPool. Each file gets its own Advisory so an error in one file
+	 * does not prevent the others from loading; check each Result for errors.
+	 *
+	 * @param directory
+	 *            The root of the directory tree to search.
+	 * @param glob
+	 *            A pattern to match the file names against, e.g. "*.person".
+	 * @param dialect
+	 *            The dialect to apply to the transformation, the Rulebase is
+	 *            only read so can be shared by all the tasks.
+	 * @param executor
+	 *            The executor to run the tasks on.
+	 * @param <T>
+	 *            The type of the roots of the object trees.
+	 * @return The result for each file, in path order.
+	 * @throws IOException
+	 *             Thrown if the directory tree can't be read.
+	 */
+	public static <T> Map<Path, Result<T>> loadAll(
+			Path directory,
+			String glob,
+			Rulebase dialect,
+			Executor executor) throws IOException {
+		final Map<Path, Result<T>> result = new TreeMap<>();
+
+		final PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+		final List<Path> paths;
+		try(final Stream<Path> stream = Files.walk(directory)) {
+			paths = stream
+					.filter(path -> matcher.matches(path.getFileName()) && Files.isRegularFile(path))
+					.collect(Collectors.toList());
+		}
+
+		final List<CompletableFuture<Result<T>>> futures = new ArrayList<>(paths.size());
+		for(final Path path : paths) {
+			futures.add(CompletableFuture.supplyAsync(() -> load(path, dialect), executor));
+		}
+
+		for(final CompletableFuture<Result<T>> future : futures) {
+			try {
+				final Result<T> loaded = future.join();
+				result.put(loaded.path, loaded);
+			} catch(final CompletionException e) {
+				// A bug rather than an error in the file, pass it on as is
+				final Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException) {
+					throw (RuntimeException)cause;
+				} else if(cause instanceof Error) {
+					throw (Error)cause;
+				}
+				throw e;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Load one file. An OakRuntimeException, e.g. from the constructor of a
+	 * template class, is reported in the file's Advisory so it doesn't stop
+	 * the other files from loading. Other exceptions are bugs and are passed
+	 * on.
+	 */
+	private static <T> Result<T> load(Path path, Rulebase dialect) {
+		Result<T> result;
+
+		Oak oak = null;
+		try {
+			oak = new Oak(path.toFile());
+			final T root = oak.toObjectTree(dialect);
+			result = new Result<>(path, root, oak.advisory);
+		} catch(final OakException e) {
+			result = new Result<>(path, null, e.getAdvisory());
+		} catch(final OakRuntimeException e) {
+			final Advisory advisory = oak == null ? new Advisory(path.toFile()) : oak.advisory;
+			advisory.error(e.toString());
+			result = new Result<>(path, null, advisory);
+		}
+
+		return result;
+	}
+
 	/**
 	 * Parse the input and transform it into implementation objects according to
 	 * a set of rules defined in a Dialect.
@@ -67,8 +225,11 @@ public class Oak extends AbstractOak {
 		final T result;
 
 		TadContext.pushAttach(advisory);
-		result = toObjectTree(dialect.rules);
-		TadContext.detach(advisory);
+		try {
+			result = toObjectTree(dialect.rules);
+		} finally {
+			TadContext.detach(advisory);
+		}
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -92,29 +253,30 @@ public class Oak extends AbstractOak {
 		T result;
 
 		TadContext.pushAttach(advisory);
-
 		try {
-			final Field field = dialect.getDeclaredField("rulebase");
-			final Rule[] rules = ((Rulebase)field.get(null)).rules;
 			try {
-				result = toObjectTree(rules);
-			} catch(final OakException e) {
+				final Field field = dialect.getDeclaredField("rulebase");
+				final Rule[] rules = ((Rulebase)field.get(null)).rules;
+				try {
+					result = toObjectTree(rules);
+				} catch(final OakException e) {
+					result = null;
+				} catch(final Exception e) {
+					throw new RuntimeException("toObjectTree", e);
+				}
+			} catch(final NoSuchFieldException
+					| SecurityException
+					| IllegalArgumentException
+					| IllegalAccessException e) {
+				advisory.error(
+						"Cannot access field 'public static Rulebase rulebase;' in: "
+								+ dialect.getName()
+								+ ", did you change the file?");
 				result = null;
-			} catch(final Exception e) {
-				throw new RuntimeException("toObjectTree", e);
 			}
-		} catch(final NoSuchFieldException
-				| SecurityException
-				| IllegalArgumentException
-				| IllegalAccessException e) {
-			advisory.error(
-					"Cannot access field 'public static Rulebase rulebase;' in: "
-							+ dialect.getName()
-							+ ", did you change the file?");
-			result = null;
+		} finally {
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -133,18 +295,19 @@ public class Oak extends AbstractOak {
 		final Rulebase result;
 
 		TadContext.pushAttach(advisory);
-
-		dialectAst = toObjectTree(OakDialect.rulebase.rules);
-		if(dialectAst != null) {
-			result = getDialect();
-			// final AstToRulesVisitor visitor = new AstToRulesVisitor();
-			// dialectAst.accept(visitor);
-			// result = visitor.getDialect();
-		} else {
-			result = null;
+		try {
+			dialectAst = toObjectTree(OakDialect.rulebase.rules);
+			if(dialectAst != null) {
+				result = getDialect();
+				// final AstToRulesVisitor visitor = new AstToRulesVisitor();
+				// dialectAst.accept(visitor);
+				// result = visitor.getDialect();
+			} else {
+				result = null;
+			}
+		} finally {
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -173,11 +336,13 @@ public class Oak extends AbstractOak {
 		}
 
 		TadContext.pushAttach(advisory);
-		visitor.enter(this);
-		rootNode.accept(visitor);
-		visitor.exit(this);
-
-		TadContext.detach(advisory);
+		try {
+			visitor.enter(this);
+			rootNode.accept(visitor);
+			visitor.exit(this);
+		} finally {
+			TadContext.detach(advisory);
+		}
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -203,18 +368,19 @@ public class Oak extends AbstractOak {
 	 */
 	private void toAst() throws OakException {
 		TadContext.pushAttach(advisory);
-
-		if(rootNode == null && !advisory.hasErrors()) {
-			final ParserRuleContext ruleContext = parser.oak();
-			if(!advisory.hasErrors()) {
-				final ParseTreeWalker walker = new ParseTreeWalker();
-				final AntlrToAstVisitor visitor = new AntlrToAstVisitor();
-				walker.walk(visitor, ruleContext);
-				rootNode = (PairNode)visitor.getRoot();
+		try {
+			if(rootNode == null && !advisory.hasErrors()) {
+				final ParserRuleContext ruleContext = parse(OakParser::oak);
+				if(!advisory.hasErrors()) {
+					final ParseTreeWalker walker = new ParseTreeWalker();
+					final AntlrToAstVisitor visitor = new AntlrToAstVisitor();
+					walker.walk(visitor, ruleContext);
+					rootNode = (PairNode)visitor.getRoot();
+				}
 			}
+		} finally {
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -0,0 +1,622 @@
+package com.inexas.oak;
+
+import java.io.*;
+import java.util.*;
+import org.antlr.v4.runtime.*;
+import com.inexas.exception.UnexpectedException;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.ast.*;
+import com.inexas.oak.dialect.Rulebase;
+import com.inexas.oak.template.AstToTemplateTree;
+import com.inexas.tad.TadContext;
+import com.inexas.util.*;
+
+/**
+ * A pull parser for Oak documents. Where the Oak class builds a parse tree and
+ * an AST of the whole document before anything can be done with it, an
+ * OakReader reads the input a token at a time and reports what it finds as a
+ * series of events. Memory use depends only on the nesting depth and the size
+ * of the largest value, not on the size of the document, so it is suitable for
+ * scanning very large documents once.
+ *
+ * For example the document "Person { name: "John"; tags [ a, b ] }" produces
+ * NAME(Person), START_OBJECT, NAME(name), VALUE("John"), NAME(tags),
+ * START_ARRAY, VALUE(a), VALUE(b), END_ARRAY, END_OBJECT and END_DOCUMENT.
+ *
+ * Values are typed exactly as the Oak AST types them: literals are converted
+ * as ConstantNodes and expressions are evaluated, so "timeout: 60 * 1000;" is
+ * reported as the z value 60000.
+ *
+ * <pre>
+ * try(final OakReader reader = new OakReader(file)) {
+ * 	while(reader.next() != OakReader.Event.END_DOCUMENT) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ */
+public class OakReader implements AutoCloseable {
+	public enum Event {
+		/** A name of a pair, see getName() */
+		NAME,
+		/** A value, see getType() and getValue() */
+		VALUE,
+		START_OBJECT,
+		END_OBJECT,
+		START_ARRAY,
+		END_ARRAY,
+		/** The end of the input, always the last event */
+		END_DOCUMENT
+	}
+
+	private enum State {
+		/** Expecting #load or the top level pair */
+		START,
+		/** Just read '{', expecting the object's first pair */
+		FIRST_PAIR,
+		/** Expecting a pair or, inside an object, a '}' */
+		PAIR,
+		/** Just read a name, expecting ':', '{', '[' or ';' */
+		AFTER_NAME,
+		/** Just read '[' */
+		ARRAY_FIRST,
+		/** Expecting ',' or ']' */
+		ARRAY_NEXT,
+		/** Read the top level pair, expecting EOF */
+		END,
+		DONE
+	}
+
+	// What's on the stack...
+	private final static byte OBJECT = 0;
+	private final static byte OBJECT_IN_ARRAY = 1;
+	private final static byte ARRAY = 2;
+	private final static byte ARRAY_OF_VALUES = 3;
+	private final static byte ARRAY_OF_OBJECTS = 4;
+
+	private final Reader reader;
+	private final Advisory advisory;
+	private final OakLexer lexer;
+	private final List<Library> libraries = new ArrayList<>();
+	private State state = State.START;
+	private byte[] stack = new byte[16];
+	private int depth;
+	/** Set by the lexer, the advisory may also hold errors from a consumer */
+	private boolean syntaxError;
+	/** One token look ahead, null if not yet read */
+	private Token next;
+	private Token current;
+
+	private String name;
+	private DataType type;
+	private Object value;
+
+	/**
+	 * @param reader
+	 *            The input to read, the OakReader closes it when it is closed.
+	 * @param libraries
+	 *            Optional list of function libraries to load.
+	 */
+	public OakReader(Reader reader, Library... libraries) {
+		this(reader, new Advisory((String)null), libraries);
+	}
+
+	/**
+	 * @param string
+	 *            The input to read.
+	 * @param libraries
+	 *            Optional list of function libraries to load.
+	 */
+	public OakReader(String string, Library... libraries) {
+		this(new StringReader(string), new Advisory(string), libraries);
+	}
+
+	/**
+	 * @param file
+	 *            The file to read.
+	 * @param libraries
+	 *            Optional list of function libraries to load.
+	 * @throws OakException
+	 *             Thrown if the file cannot be opened.
+	 */
+	public OakReader(File file, Library... libraries) throws OakException {
+		this(open(file), new Advisory(file), libraries);
+	}
+
+	private OakReader(Reader reader, Advisory advisory, Library[] libraries) {
+		this.reader = reader;
+		this.advisory = advisory;
+		this.libraries.addAll(Arrays.asList(libraries));
+
+		lexer = new OakLexer(open(reader));
+		// The characters are discarded as we go so tokens must copy their text
+		lexer.setTokenFactory(new CommonTokenFactory(true));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void syntaxError(
+					Recognizer<?, ?> recognizer,
+					Object offendingSymbol,
+					int line, int column,
+					String message,
+					RecognitionException e) {
+				advisory.error(line, column, "Syntax error: " + message);
+				syntaxError = true;
+			}
+		});
+	}
+
+	/**
+	 * Read the next event.
+	 *
+	 * @return The event.
+	 * @throws OakException
+	 *             Thrown if the input contains an error. The reader should
+	 *             not be used after an error.
+	 * @throws NoSuchElementException
+	 *             Thrown if called after END_DOCUMENT has been returned.
+	 */
+	public Event next() throws OakException {
+		final Event result;
+
+		type = null;
+		value = null;
+
+		switch(state) {
+		case START: {
+			final Token token = peek();
+			if(token.getType() == OakLexer.T__0) {
+				// #load "com.example.MyLibrary"
+				take();
+				load(expect(OakLexer.TextLiteral));
+				result = next();
+			} else {
+				state = State.PAIR;
+				result = next();
+			}
+			break;
+		}
+
+		case FIRST_PAIR:
+		case PAIR: {
+			final Token token = take();
+			final int tokenType = token.getType();
+			if(tokenType == OakLexer.IdentifierLiteral) {
+				name = token.getText();
+				state = State.AFTER_NAME;
+				result = Event.NAME;
+			} else if(tokenType == OakLexer.Ylruc && state == State.PAIR && isTop(OBJECT, OBJECT_IN_ARRAY)) {
+				final byte popped = pop();
+				state = popped == OBJECT_IN_ARRAY ? State.ARRAY_NEXT : endOfPair();
+				result = Event.END_OBJECT;
+			} else {
+				throw error(token, "Expecting a name");
+			}
+			break;
+		}
+
+		case AFTER_NAME: {
+			final Token token = take();
+			switch(token.getType()) {
+			case OakLexer.Colon:
+				readValue(OakLexer.Semi, OakLexer.Semi);
+				expect(OakLexer.Semi);
+				state = endOfPair();
+				result = Event.VALUE;
+				break;
+
+			case OakLexer.Curly:
+				push(OBJECT);
+				state = State.FIRST_PAIR;
+				result = Event.START_OBJECT;
+				break;
+
+			case OakLexer.Square:
+				// We don't know what's in the array until we see the first element
+				push(ARRAY);
+				state = State.ARRAY_FIRST;
+				result = Event.START_ARRAY;
+				break;
+
+			case OakLexer.Semi:
+				// Shorthand for name: true;
+				type = DataType.bool;
+				value = Boolean.TRUE;
+				state = endOfPair();
+				result = Event.VALUE;
+				break;
+
+			default:
+				throw error(token, "Expecting ':', '{', '[' or ';'");
+			}
+			break;
+		}
+
+		case ARRAY_FIRST:
+			if(peek().getType() == OakLexer.Curly) {
+				take();
+				stack[depth - 1] = ARRAY_OF_OBJECTS;
+				push(OBJECT_IN_ARRAY);
+				state = State.FIRST_PAIR;
+				result = Event.START_OBJECT;
+			} else {
+				stack[depth - 1] = ARRAY_OF_VALUES;
+				readValue(OakLexer.Comma, OakLexer.Erauqs);
+				state = State.ARRAY_NEXT;
+				result = Event.VALUE;
+			}
+			break;
+
+		case ARRAY_NEXT: {
+			final Token token = take();
+			if(token.getType() == OakLexer.Erauqs) {
+				pop();
+				state = endOfPair();
+				result = Event.END_ARRAY;
+			} else if(token.getType() != OakLexer.Comma) {
+				throw error(token, "Expecting ',' or ']'");
+			} else if(isTop(ARRAY_OF_OBJECTS)) {
+				expect(OakLexer.Curly);
+				push(OBJECT_IN_ARRAY);
+				state = State.FIRST_PAIR;
+				result = Event.START_OBJECT;
+			} else {
+				readValue(OakLexer.Comma, OakLexer.Erauqs);
+				result = Event.VALUE;
+			}
+			break;
+		}
+
+		case END:
+			expect(Token.EOF);
+			state = State.DONE;
+			result = Event.END_DOCUMENT;
+			break;
+
+		case DONE:
+			throw new NoSuchElementException("Already at the end of the document");
+
+		default:
+			throw new UnexpectedException("next: " + state);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Read the rest of the document and transform it into implementation
+	 * objects according to a set of rules. The result is the same as
+	 * Oak.toObjectTree() but the objects are constructed as the document is
+	 * read, no parse tree or AST is built so the peak memory required is
+	 * that of the object tree alone.
+	 *
+	 * @param dialect
+	 *            The dialect to apply to the transformation.
+	 * @param <T>
+	 *            The type of the root of the object tree.
+	 * @return The root of the output object tree.
+	 * @throws OakException
+	 *             Thrown if a syntax error or a dialect error is encountered.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T toObjectTree(Rulebase dialect) throws OakException {
+		final T result;
+
+		TadContext.pushAttach(advisory);
+		try {
+			final AstToTemplateTree builder = new AstToTemplateTree(dialect.rules, null);
+			builder.read(this);
+			result = (T)builder.getRoot();
+		} finally {
+			TadContext.detach(advisory);
+		}
+		if(advisory.hasErrors()) {
+			throw new OakException(advisory);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return The name read by the most recent NAME event.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The data type of the value just read by a VALUE event.
+	 */
+	public DataType getType() {
+		return type;
+	}
+
+	/**
+	 * @return The value just read by a VALUE event, may be null.
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * @return The nesting depth: the number of objects and arrays that have
+	 *         been started but not yet ended.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return The line of the last token read, counting from 1.
+	 */
+	public int getLine() {
+		return current == null ? 1 : current.getLine();
+	}
+
+	/**
+	 * @return The column of the last token read, counting from 1.
+	 */
+	public int getColumn() {
+		return current == null ? 1 : current.getCharPositionInLine() + 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * The UnbufferedCharStream reads the first character as it's constructed
+	 * so a read error can happen here.
+	 */
+	private CharStream open(Reader input) {
+		CharStream result;
+
+		try {
+			result = new UnbufferedCharStream(input);
+		} catch(final RuntimeException e) {
+			// Reported by the first call to next()
+			readError(e);
+			result = new UnbufferedCharStream(new StringReader(""));
+		}
+
+		return result;
+	}
+
+	/**
+	 * UnbufferedCharStream wraps read errors, e.g. invalid UTF-8, in a
+	 * RuntimeException.
+	 */
+	private OakException readError(RuntimeException e) {
+		if(!(e.getCause() instanceof IOException)) {
+			throw e;
+		}
+		advisory.error("Error reading input: " + e.getCause().getMessage());
+		syntaxError = true;
+		return new OakException(advisory);
+	}
+
+	private static Reader open(File file) throws OakException {
+		try {
+			return FileInput.open(file);
+		} catch(final FileNotFoundException e) {
+			final Advisory advisory = new Advisory(file);
+			advisory.error("File not found");
+			throw new OakException(advisory);
+		}
+	}
+
+	/**
+	 * Read a value: either a single literal or a sequence of tokens that
+	 * forms an expression. The value ends at the first terminator that is not
+	 * inside parentheses, the terminator is left to be read next.
+	 */
+	private void readValue(int terminator1, int terminator2) throws OakException {
+		final Token first = take();
+		final Token after = peek();
+		final int afterType = after.getType();
+		if(afterType == terminator1 || afterType == terminator2) {
+			// The common case: a single literal...
+			toValue(first);
+		} else {
+			// An expression, collect the tokens and parse them...
+			final Text t = new Text();
+			t.append(first.getText());
+			int parentheses = first.getType() == OakLexer.Paren ? 1 : 0;
+			while(true) {
+				final Token token = peek();
+				final int tokenType = token.getType();
+				if(tokenType == Token.EOF) {
+					throw error(token, "Unexpected end of input");
+				} else if(parentheses == 0 && (tokenType == terminator1 || tokenType == terminator2)) {
+					break;
+				} else if(tokenType == OakLexer.Paren) {
+					parentheses++;
+				} else if(tokenType == OakLexer.Nerap) {
+					parentheses--;
+				}
+				take();
+				t.append(' ');
+				t.append(token.getText());
+			}
+			try {
+				final Expression expression = new Expression(
+						t.toString(),
+						libraries.toArray(new Library[libraries.size()]));
+				final ConstantNode constant = expression.evaluate();
+				type = constant.getType();
+				value = constant.getValue();
+			} catch(final OakException e) {
+				throw error(first, "Invalid expression: " + e.getAdvisory().getFirstError());
+			} catch(final OakRuntimeException e) {
+				throw error(first, "Invalid expression: " + e.getMessage());
+			}
+		}
+	}
+
+	private void toValue(Token token) throws OakException {
+		final String text = token.getText();
+		final ConstantNode constant;
+		switch(token.getType()) {
+		case OakLexer.IdentifierLiteral:
+			constant = (ConstantNode)ConstantNode.toIdentifierConstant(null, text);
+			break;
+
+		case OakLexer.IntegerLiteral:
+			constant = (ConstantNode)ConstantNode.toIntegerConstant(null, text);
+			break;
+
+		case OakLexer.BinaryIntegerLiteral:
+			constant = (ConstantNode)ConstantNode.toBinaryIntegerConstant(null, text);
+			break;
+
+		case OakLexer.HexIntegerLiteral:
+			constant = (ConstantNode)ConstantNode.toHexIntegerConstant(null, text);
+			break;
+
+		case OakLexer.BigIntegerLiteral:
+			constant = (ConstantNode)ConstantNode.toBigIntegerConstant(null, text);
+			break;
+
+		case OakLexer.FloatingPointLiteral:
+			constant = (ConstantNode)ConstantNode.toFloatingPointConstant(null, text);
+			break;
+
+		case OakLexer.BigFloatingPointLiteral:
+			constant = (ConstantNode)ConstantNode.toBigFloatingPointConstant(null, text);
+			break;
+
+		case OakLexer.TextLiteral:
+			constant = (ConstantNode)ConstantNode.toTextConstant(null, text);
+			break;
+
+		case OakLexer.PathLiteral:
+			constant = (ConstantNode)ConstantNode.toPathConstant(null, text);
+			break;
+
+		case OakLexer.DatetimeLiteral:
+			constant = (ConstantNode)ConstantNode.toDatetime(null, text.substring(1));
+			break;
+
+		case OakLexer.DateLiteral:
+			constant = (ConstantNode)ConstantNode.toDate(null, text.substring(1));
+			break;
+
+		case OakLexer.TimeLiteral:
+			constant = (ConstantNode)ConstantNode.toTime(null, text.substring(1));
+			break;
+
+		case OakLexer.True:
+		case OakLexer.False:
+			constant = null;
+			type = DataType.bool;
+			value = Boolean.valueOf(token.getType() == OakLexer.True);
+			break;
+
+		case OakLexer.Null:
+			constant = null;
+			type = DataType.any;
+			value = null;
+			break;
+
+		case OakLexer.Cardinality:
+			constant = null;
+			try {
+				value = Cardinality.newInstance(text);
+			} catch(final Cardinality.Exception e) {
+				throw error(token, e.getMessage());
+			}
+			type = DataType.cardinality;
+			break;
+
+		default:
+			throw error(token, "Expecting a value");
+		}
+
+		if(constant != null) {
+			type = constant.getType();
+			value = constant.getValue();
+		}
+	}
+
+	private void load(Token token) throws OakException {
+		final String className = StringU.removeQuotes(token.getText());
+		try {
+			libraries.add((Library)Class.forName(className).newInstance());
+		} catch(final ClassNotFoundException e) {
+			throw error(token, "Function library class not found: " + e.getMessage());
+		} catch(final IllegalAccessException | InstantiationException e) {
+			throw error(token, e.getMessage());
+		}
+	}
+
+	private State endOfPair() {
+		return depth == 0 ? State.END : State.PAIR;
+	}
+
+	private Token peek() throws OakException {
+		if(next == null) {
+			try {
+				next = lexer.nextToken();
+			} catch(final RuntimeException e) {
+				throw readError(e);
+			}
+			if(syntaxError) {
+				throw new OakException(advisory);
+			}
+		}
+		return next;
+	}
+
+	private Token take() throws OakException {
+		current = peek();
+		next = null;
+		return current;
+	}
+
+	private Token expect(int tokenType) throws OakException {
+		final Token result = take();
+		if(result.getType() != tokenType) {
+			throw error(result, "Expecting " + (tokenType == Token.EOF
+					? "end of input"
+					: OakLexer.VOCABULARY.getDisplayName(tokenType)));
+		}
+		return result;
+	}
+
+	private void push(byte what) {
+		if(depth == stack.length) {
+			stack = Arrays.copyOf(stack, depth * 2);
+		}
+		stack[depth++] = what;
+	}
+
+	private byte pop() {
+		return stack[--depth];
+	}
+
+	private boolean isTop(byte... candidates) {
+		boolean result = false;
+		if(depth > 0) {
+			final byte top = stack[depth - 1];
+			for(final byte candidate : candidates) {
+				if(top == candidate) {
+					result = true;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private OakException error(Token token, String message) {
+		advisory.error(
+				token.getLine(),
+				token.getCharPositionInLine() + 1,
+				message + ", found: " + (token.getType() == Token.EOF ? "end of input" : token.getText()));
+		return new OakException(advisory);
+	}
+}
@@ -0,0 +1,94 @@
+package com.inexas.oak;
+
+import java.util.*;
+import com.inexas.oak.advisory.OakRuntimeException;
+import com.inexas.tad.Tad;
+
+/**
+ * Declares the variables that an Expression can refer to. Each variable is
+ * given a slot when it is declared. The expression resolves variable names to
+ * slots when it is parsed so looking up a value during evaluation is an array
+ * read. The values themselves are supplied in a Bindings at evaluation time:
+ *
+ * <pre>
+ * final Variables variables = new Variables()
+ * 		.declare("price", DataType.f)
+ * 		.declare("quantity", DataType.z);
+ * final Expression expression = new Expression("price * quantity", variables);
+ * final Bindings bindings = new Bindings(variables);
+ * for(final Order order : orders) {
+ * 	bindings.setFloat(0, order.price);
+ * 	bindings.setInt(1, order.quantity);
+ * 	total += expression.evaluateFloat(bindings);
+ * }
+ * </pre>
+ *
+ * A variable hides any symbol of the same name that a Library might resolve.
+ */
+public class Variables implements Tad {
+	private final Map<String, Integer> slots = new HashMap<>();
+	private final List<String> names = new ArrayList<>();
+	private final List<DataType> types = new ArrayList<>();
+
+	/**
+	 * Declare a variable. Slots are allocated in the order the variables are
+	 * declared starting at 0.
+	 *
+	 * @param name
+	 *            The name of the variable, a valid Identifier.
+	 * @param type
+	 *            The variable's data type.
+	 * @return Return this so calls can be chained.
+	 * @throws OakRuntimeException
+	 *             Thrown if the name is invalid or already declared.
+	 */
+	public Variables declare(String name, DataType type) throws OakRuntimeException {
+		if(!Identifier.isValid(name)) {
+			throw new OakRuntimeException("Invalid variable name: " + name);
+		}
+		if(slots.containsKey(name)) {
+			throw new OakRuntimeException("Variable already declared: " + name);
+		}
+
+		slots.put(name, new Integer(names.size()));
+		names.add(name);
+		types.add(type);
+
+		return this;
+	}
+
+	/**
+	 * @param name
+	 *            The name of the variable to look up.
+	 * @return The variable's slot or -1 if it has not been declared.
+	 */
+	public int getSlot(String name) {
+		final Integer slot = slots.get(name);
+		return slot == null ? -1 : slot.intValue();
+	}
+
+	/**
+	 * @param slot
+	 *            The slot of the variable.
+	 * @return The name of the variable.
+	 */
+	public String getName(int slot) {
+		return names.get(slot);
+	}
+
+	/**
+	 * @param slot
+	 *            The slot of the variable.
+	 * @return The data type of the variable.
+	 */
+	public DataType getType(int slot) {
+		return types.get(slot);
+	}
+
+	/**
+	 * @return The number of variables declared.
+	 */
+	public int size() {
+		return names.size();
+	}
+}
@@ -64,7 +64,8 @@ public class Advisory implements Tad {
 	private final List<Advice> items = new ArrayList<>();
 
 	private int errorCount, warningCount;
-	private final List<Pair<Object, Locus>> register = new ArrayList<>();
+	/** Template objects to their position in the source, null if not kept */
+	private Map<Object, Locus> register = new IdentityHashMap<>();
 	private final String string;
 
 	public Advisory(String string) {
@@ -144,8 +145,45 @@ public class Advisory implements Tad {
 		return result;
 	}
 
+	/**
+	 * Associate a template object with its position in the source so errors
+	 * reported against the object later can give the position. If an object is
+	 * associated more than once the first position is kept.
+	 *
+	 * @param locus
+	 *            The position of the object in the source.
+	 * @param object
+	 *            The object, compared by identity.
+	 */
 	public void associate(Locus locus, Object object) {
-		register.add(new Pair<>(object, locus));
+		if(register != null) {
+			register.putIfAbsent(object, locus);
+		}
+	}
+
+	/**
+	 * Set whether associate() keeps template object positions. Callers that
+	 * don't report errors against template objects, or don't need the
+	 * position when they do, can turn this off to save the memory. Turning it
+	 * off discards any positions already kept.
+	 *
+	 * @param registering
+	 *            True, the default, to keep positions, false to ignore
+	 *            associate().
+	 */
+	public void setRegistering(boolean registering) {
+		if(!registering) {
+			register = null;
+		} else if(register == null) {
+			register = new IdentityHashMap<>();
+		}
+	}
+
+	/**
+	 * @return True if associate() keeps template object positions.
+	 */
+	public boolean isRegistering() {
+		return register != null;
 	}
 
 	/**
@@ -216,14 +254,10 @@ public class Advisory implements Tad {
 			result = null;
 		} else if(object instanceof Locus) {
 			result = (Locus)object;
-		} else {
+		} else if(register == null) {
 			result = null;
-			for(final Pair<Object, Locus> pair : register) {
-				if(pair.object1 == object) {
-					result = pair.object2;
-					break;
-				}
-			}
+		} else {
+			result = register.get(object);
 		}
 
 		return result;
@@ -3,7 +3,7 @@ package com.inexas.oak.advisory;
 public class OakRuntimeException extends RuntimeException {
 	private static final long serialVersionUID = -4974707918231194628L;
 
-	public OakRuntimeException(String message, Exception cause) {
+	public OakRuntimeException(String message, Throwable cause) {
 		super(message, cause);
 	}
 
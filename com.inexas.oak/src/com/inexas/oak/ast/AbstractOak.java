@@ -1,8 +1,10 @@
 package com.inexas.oak.ast;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import com.inexas.oak.Library;
 import com.inexas.oak.advisory.*;
 import com.inexas.oak.ast.LibraryRegistry.InvalidMethodException;
@@ -27,6 +29,7 @@ public abstract class AbstractOak {
 	protected final Advisory advisory;
 	protected final LibraryRegistry registry = new LibraryRegistry();
 	protected OakParser parser;
+	private MyErrorListener errorListener;
 
 	/**
 	 * Construct an Oak process that will parse a file. The constructor parses
@@ -44,21 +47,19 @@ public abstract class AbstractOak {
 
 		advisory = new Advisory(file);
 		TadContext.pushAttach(advisory);
-
-		if(file.isFile()) {
-			try(final Reader reader = new java.io.FileReader(file)) {
-				final ANTLRInputStream inputStream = new ANTLRInputStream(reader);
-				process(inputStream);
-			} catch(final FileNotFoundException e) {
-				advisory.error("File not found");
-			} catch(final IOException e) {
-				advisory.error("Error reading file: " + e.getMessage());
+		try {
+			if(file.isFile()) {
+				process(FileInput.map(file));
+			} else {
+				advisory.error(file.getName() + " is not a file");
 			}
-		} else {
-			advisory.error(file.getName() + " is not a file");
+		} catch(final NoSuchFileException e) {
+			advisory.error("File not found");
+		} catch(final IOException e) {
+			advisory.error("Error reading file: " + e.getMessage());
+		} finally {
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -82,26 +83,19 @@ public abstract class AbstractOak {
 
 		advisory = new Advisory(string);
 		TadContext.pushAttach(advisory);
-
 		try {
 			registry.register(libraries);
 
 			if(string == null || string.trim().length() == 0) {
 				advisory.error("Null or empty string");
 			} else {
-				try(final InputStream stream = new ByteArrayInputStream(
-						string.getBytes(StandardCharsets.UTF_8))) {
-					final ANTLRInputStream inputStream = new ANTLRInputStream(stream);
-					process(inputStream);
-				} catch(final IOException e) {
-					advisory.error("IO error: " + e.getMessage());
-				}
+				process(new ANTLRInputStream(string));
 			}
 		} catch(final InvalidMethodException e) {
 			advisory.error(e.getMessage());
+		} finally {
+			TadContext.detach(advisory);
 		}
-
-		TadContext.detach(advisory);
 		if(advisory.hasErrors()) {
 			throw new OakException(advisory);
 		}
@@ -141,7 +135,7 @@ public abstract class AbstractOak {
 	 * Do as much as we can without knowing if we have to parse an expression or
 	 * Oak
 	 */
-	private void process(ANTLRInputStream inputStream) throws OakException {
+	private void process(CharStream inputStream) throws OakException {
 		try {
 			// Create the lexer...
 			final OakLexer lexer = new OakLexer(inputStream);
@@ -151,7 +145,7 @@ public abstract class AbstractOak {
 			parser = new OakParser(tokens);
 
 			// Fix up error listener...
-			final MyErrorListener errorListener = new MyErrorListener();
+			errorListener = new MyErrorListener();
 			lexer.removeErrorListeners();
 			lexer.addErrorListener(errorListener);
 			parser.removeErrorListeners(); // Remove ConsoleErrorListener
@@ -161,4 +155,38 @@ public abstract class AbstractOak {
 			throw new OakException(advisory);
 		}
 	}
+
+	/**
+	 * Parse the input using a given start rule. The parse is done in two
+	 * stages. First we try the faster SLL prediction mode, bailing out at the
+	 * first error. That works for almost all input; only if it fails do we
+	 * rewind and parse again with full LL prediction and the normal error
+	 * reporting. Input with syntax errors is therefore reported exactly as
+	 * before.
+	 *
+	 * @param rule
+	 *            The start rule, e.g. OakParser::oak.
+	 * @return The parse tree.
+	 */
+	protected ParserRuleContext parse(java.util.function.Function<OakParser, ParserRuleContext> rule) {
+		ParserRuleContext result;
+
+		// Stage 1: SLL, no error reporting and bail out on the first error...
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		try {
+			result = rule.apply(parser);
+		} catch(final ParseCancellationException e) {
+			// Stage 2: rewind and try again with full LL...
+			parser.getTokenStream().seek(0);
+			parser.reset();
+			parser.addErrorListener(errorListener);
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			result = rule.apply(parser);
+		}
+
+		return result;
+	}
 }
@@ -5,7 +5,7 @@ import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.*;
 import com.inexas.exception.UnexpectedException;
 import com.inexas.oak.*;
-import com.inexas.oak.advisory.Advisory;
+import com.inexas.oak.advisory.*;
 import com.inexas.oak.ast.LibraryRegistry.InvalidMethodException;
 import com.inexas.oak.ast.OakParser.*;
 import com.inexas.tad.TadContext;
@@ -62,7 +62,14 @@ public class AntlrToAstVisitor extends OakBaseListener {
 		switch(ctx.start.getType()) {
 		case OakLexer.IdentifierLiteral:
 			if(inExpression) {
-				constant = new SymbolNode(ctx, text);
+				// Declared variables hide library symbols
+				final Variables variables = TadContext.getButDontThrow(Variables.class);
+				final int slot = variables == null ? -1 : variables.getSlot(text);
+				if(slot >= 0) {
+					constant = new VariableNode(ctx, text, slot, variables.getType(slot));
+				} else {
+					constant = new SymbolNode(ctx, text);
+				}
 			} else {
 				constant = new IdentifierNode(ctx, text);
 			}
@@ -139,6 +146,47 @@ public class AntlrToAstVisitor extends OakBaseListener {
 
 	@Override
 	public void exitExpr(ExprContext ctx) {
+		if(hasErrorOperand(ctx)) {
+			// An operand has been reported already, e.g. an unresolved symbol,
+			// so stand a null constant in for the whole sub-expression
+			for(int i = ctx.getChildCount() - 1; i >= 0; i--) {
+				if(ctx.getChild(i) instanceof ExprContext) {
+					stack.pop();
+				}
+			}
+			stack.add(ConstantNode.toErrorConstant(ctx));
+		} else {
+			final ExpressionNode node = toExpressionNode(ctx);
+			if(node != null) {
+				stack.add(fold(node));
+			}
+		}
+
+		inExpression = false;
+	}
+
+	/**
+	 * @return True if any of the operands of the expression, the nodes on the
+	 *         top of the stack, is in error.
+	 */
+	private boolean hasErrorOperand(ExprContext ctx) {
+		boolean result = false;
+
+		int depth = stack.size();
+		for(int i = ctx.getChildCount() - 1; i >= 0; i--) {
+			if(ctx.getChild(i) instanceof ExprContext) {
+				depth--;
+				if(((ExpressionNode)stack.get(depth)).isError()) {
+					result = true;
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private ExpressionNode toExpressionNode(ExprContext ctx) {
 		final int count = ctx.getChildCount();
 		final ExpressionNode node;
 		if(count >= 3 && ctx.getChild(1).getText().charAt(0) == '(') {
@@ -222,15 +270,7 @@ public class AntlrToAstVisitor extends OakBaseListener {
 			}
 		}
 
-		if(node != null) {
-			if(node.isStatic()) {
-				stack.add(node.evaluate());
-			} else {
-				stack.add(node);
-			}
-		}
-
-		inExpression = false;
+		return node;
 	}
 
 	@Override
@@ -243,14 +283,14 @@ public class AntlrToAstVisitor extends OakBaseListener {
 		final int childCount = ctx.getChildCount();
 		if(childCount == 4) {
 			// Either an expression, literal or path...
-			final Identifier name = new Identifier(ctx.getChild(0).getText());
+			final Identifier name = Identifier.intern(ctx.getChild(0).getText());
 			node = new ValuePairNode(ctx, name, stack.pop());
 
 		} else if(childCount == 2) {
 			// ObjectName Body
 			// ArrayName ElementList
 			// BooleanName TrueOrFalse
-			final Identifier name = new Identifier(ctx.getChild(0).getText());
+			final Identifier name = Identifier.intern(ctx.getChild(0).getText());
 			final ParseTree child = ctx.getChild(1);
 			if(child instanceof ObjectContext) {
 				node = new ObjectPairNode(ctx, name, (ObjectNode)stack.pop());
@@ -344,6 +384,38 @@ public class AntlrToAstVisitor extends OakBaseListener {
 		}
 	}
 
+	/**
+	 * Constant folding. Expressions are built bottom up so by the time we get
+	 * here any static operands have already been folded into ConstantNodes
+	 * and we only need to look at the node itself. The ConstantNode that
+	 * replaces a static expression takes the expression's position in the
+	 * source so that errors still point at the right place.
+	 *
+	 * @param node
+	 *            The newly built expression node.
+	 * @return Either the node or a ConstantNode or branch that replaces it.
+	 */
+	private ExpressionNode fold(ExpressionNode node) {
+		ExpressionNode result;
+
+		if(node.isStatic()) {
+			try {
+				result = new ConstantNode(node.context, node.evaluate());
+			} catch(final ArithmeticException | OakRuntimeException e) {
+				// E.g. 1 / 0, report it where it is and leave it unfolded
+				error(node.context, "Error evaluating constant expression: " + e.getMessage());
+				result = node;
+			}
+		} else if(node instanceof ConditionalNode) {
+			// A static condition selects one branch...
+			result = ((ConditionalNode)node).fold();
+		} else {
+			result = node;
+		}
+
+		return result;
+	}
+
 	private int getOperand(ExprContext ctx, int index) {
 		return ((TerminalNode)ctx.getChild(index)).getSymbol().getType();
 	}
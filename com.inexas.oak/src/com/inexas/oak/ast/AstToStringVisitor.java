@@ -260,6 +260,14 @@ public class AstToStringVisitor extends AstVisitor.Base {
 		t.append(identifierNode.identifier);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visit(VariableNode variableNode) {
+		t.append(variableNode.getName());
+	}
+
 	/**
 	 *
 	 * @return A parseable representation of the visited Oak file.
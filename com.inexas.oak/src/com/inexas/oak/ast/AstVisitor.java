@@ -182,6 +182,14 @@ public interface AstVisitor {
 			// Do nothing
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void visit(VariableNode variableNode) {
+			// Do nothing
+		}
+
 		/**
 		 * {@inheritDoc}
 		 */
@@ -307,6 +315,8 @@ public interface AstVisitor {
 
 	void visit(SymbolNode symbolNode);
 
+	void visit(VariableNode variableNode);
+
 	void visit(ConstantNode node);
 
 	void visit(CardinalityNode node);
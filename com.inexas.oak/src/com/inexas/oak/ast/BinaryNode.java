@@ -1,10 +1,12 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import java.math.*;
 import org.antlr.v4.runtime.ParserRuleContext;
 import com.inexas.exception.UnexpectedException;
-import com.inexas.oak.DataType;
+import com.inexas.oak.*;
 import com.inexas.oak.DataType.*;
+import com.inexas.oak.advisory.OakRuntimeException;
 
 public class BinaryNode extends ExpressionNode {
 	private class Converter {
@@ -16,8 +18,8 @@ public class BinaryNode extends ExpressionNode {
 		private boolean lhsBoolean, rhsBoolean;
 		private final Object lhsValue, rhsValue;
 
-		public Converter() {
-			lhsValue = lhsNode.evaluate().getValue();
+		public Converter(Bindings bindings) {
+			lhsValue = lhsNode.evaluate(bindings).getValue();
 			if(commonType == DataType.bool && lhsNode.getType() == DataType.bool) {
 				final boolean lhsResult = ((Boolean)lhsValue).booleanValue();
 
@@ -29,10 +31,10 @@ public class BinaryNode extends ExpressionNode {
 					// false AND <don't care>
 					rhsValue = Boolean.FALSE;
 				} else {
-					rhsValue = rhsNode.evaluate().getValue();
+					rhsValue = rhsNode.evaluate(bindings).getValue();
 				}
 			} else {
-				rhsValue = rhsNode.evaluate().getValue();
+				rhsValue = rhsNode.evaluate(bindings).getValue();
 			}
 			switch(commonType) {
 			case z:
@@ -113,6 +115,31 @@ public class BinaryNode extends ExpressionNode {
 		}
 	}
 
+	/** Operator to the name of its implementation in ExpressionCompiler */
+	private final static String[] operatorNames = new String[OakLexer.Usr + 1];
+	static {
+		operatorNames[OakLexer.Plus] = "plus";
+		operatorNames[OakLexer.Minus] = "minus";
+		operatorNames[OakLexer.Multiply] = "multiply";
+		operatorNames[OakLexer.Divide] = "divide";
+		operatorNames[OakLexer.Mod] = "mod";
+		operatorNames[OakLexer.Lt] = "lt";
+		operatorNames[OakLexer.Lte] = "lte";
+		operatorNames[OakLexer.Gt] = "gt";
+		operatorNames[OakLexer.Gte] = "gte";
+		operatorNames[OakLexer.And] = "and";
+		operatorNames[OakLexer.Or] = "or";
+		operatorNames[OakLexer.Xor] = "xor";
+		operatorNames[OakLexer.Eq] = "eq";
+		operatorNames[OakLexer.Ne] = "ne";
+		operatorNames[OakLexer.Shl] = "shl";
+		operatorNames[OakLexer.Shr] = "shr";
+		operatorNames[OakLexer.Usr] = "usr";
+	}
+
+	/** Result of comparing unordered operands, i.e. one or both is NaN */
+	private final static int NAN = Integer.MIN_VALUE;
+
 	private final int operator;
 	private final ExpressionNode lhsNode, rhsNode;
 	/**
@@ -203,12 +230,12 @@ public class BinaryNode extends ExpressionNode {
 	}
 
 	@Override
-	public ConstantNode evaluate() {
+	public ConstantNode evaluate(Bindings bindings) {
 		final ConstantNode result;
 
 		final ParserRuleContext lhsContext = lhsNode.context;
 
-		final Converter converter = new Converter();
+		final Converter converter = new Converter(bindings);
 
 		switch(operator) {
 		case OakLexer.Plus:
@@ -400,7 +427,8 @@ public class BinaryNode extends ExpressionNode {
 					tmp = new ConstantNode(lhsContext, converter.lhs_Z.shiftLeft(n));
 				}
 			} catch(final OverflowException e) {
-				error("Shift to big");
+				// Not reported to the Advisory as evaluation may be concurrent
+				throw new OakRuntimeException("Shift too big");
 			} catch(NullValueException | TypeMismatchException e) {
 				throw new UnexpectedException("evaluate");
 			}
@@ -420,7 +448,8 @@ public class BinaryNode extends ExpressionNode {
 					tmp = new ConstantNode(lhsContext, converter.lhs_Z.shiftRight(n));
 				}
 			} catch(final OverflowException e) {
-				error("Shift to big");
+				// Not reported to the Advisory as evaluation may be concurrent
+				throw new OakRuntimeException("Shift too big");
 			} catch(NullValueException | TypeMismatchException e) {
 				throw new UnexpectedException("evaluate");
 			}
@@ -452,7 +481,7 @@ public class BinaryNode extends ExpressionNode {
 			case identifier:
 			case path:
 			case text:
-				compare = converter.lhs_text.compareTo(converter.lhs_text) < 0;
+				compare = converter.lhs_text.compareTo(converter.rhs_text) < 0;
 				break;
 
 			case any:
@@ -486,7 +515,7 @@ public class BinaryNode extends ExpressionNode {
 			case identifier:
 			case path:
 			case text:
-				compare = converter.lhs_text.compareTo(converter.lhs_text) <= 0;
+				compare = converter.lhs_text.compareTo(converter.rhs_text) <= 0;
 				break;
 
 			case any:
@@ -521,7 +550,7 @@ public class BinaryNode extends ExpressionNode {
 			case identifier:
 			case path:
 			case text:
-				compare = converter.lhs_text.compareTo(converter.lhs_text) >= 0;
+				compare = converter.lhs_text.compareTo(converter.rhs_text) >= 0;
 				break;
 
 			case any:
@@ -555,7 +584,7 @@ public class BinaryNode extends ExpressionNode {
 			case identifier:
 			case path:
 			case text:
-				compare = converter.lhs_text.compareTo(converter.lhs_text) > 0;
+				compare = converter.lhs_text.compareTo(converter.rhs_text) > 0;
 				break;
 
 			case any:
@@ -657,6 +686,558 @@ public class BinaryNode extends ExpressionNode {
 		return result;
 	}
 
+	@Override
+	public int evaluateInt(Bindings bindings) {
+		final int result;
+
+		if(returnType == DataType.z) {
+			final int lhs = lhsNode.evaluateInt(bindings);
+			final int rhs = rhsNode.evaluateInt(bindings);
+			switch(operator) {
+			case OakLexer.Plus:
+				result = lhs + rhs;
+				break;
+
+			case OakLexer.Minus:
+				result = lhs - rhs;
+				break;
+
+			case OakLexer.Multiply:
+				result = lhs * rhs;
+				break;
+
+			case OakLexer.Divide:
+				result = lhs / rhs;
+				break;
+
+			case OakLexer.Mod:
+				result = lhs % rhs;
+				break;
+
+			case OakLexer.And:
+				result = lhs & rhs;
+				break;
+
+			case OakLexer.Or:
+				result = lhs | rhs;
+				break;
+
+			case OakLexer.Xor:
+				result = lhs ^ rhs;
+				break;
+
+			case OakLexer.Shl:
+				result = lhs << rhs;
+				break;
+
+			case OakLexer.Shr:
+				result = lhs >> rhs;
+				break;
+
+			case OakLexer.Usr:
+				result = lhs >>> rhs;
+				break;
+
+			default:
+				throw new UnexpectedException("evaluateInt: " + operator);
+			}
+		} else {
+			result = super.evaluateInt(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public float evaluateFloat(Bindings bindings) {
+		final float result;
+
+		if(returnType == DataType.z) {
+			result = evaluateInt(bindings);
+		} else if(returnType == DataType.f) {
+			final float lhs = lhsNode.evaluateFloat(bindings);
+			final float rhs = rhsNode.evaluateFloat(bindings);
+			switch(operator) {
+			case OakLexer.Plus:
+				result = lhs + rhs;
+				break;
+
+			case OakLexer.Minus:
+				result = lhs - rhs;
+				break;
+
+			case OakLexer.Multiply:
+				result = lhs * rhs;
+				break;
+
+			case OakLexer.Divide:
+				result = lhs / rhs;
+				break;
+
+			default:
+				throw new UnexpectedException("evaluateFloat: " + operator);
+			}
+		} else {
+			result = super.evaluateFloat(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean evaluateBoolean(Bindings bindings) {
+		final boolean result;
+
+		switch(operator) {
+		case OakLexer.Land:
+			result = lhsNode.evaluateBoolean(bindings) && rhsNode.evaluateBoolean(bindings);
+			break;
+
+		case OakLexer.Lor:
+			result = lhsNode.evaluateBoolean(bindings) || rhsNode.evaluateBoolean(bindings);
+			break;
+
+		case OakLexer.Lt:
+		case OakLexer.Lte:
+		case OakLexer.Gt:
+		case OakLexer.Gte:
+		case OakLexer.Eq:
+		case OakLexer.Ne:
+			if(commonType == DataType.z) {
+				result = compare(Integer.compare(lhsNode.evaluateInt(bindings), rhsNode.evaluateInt(bindings)));
+			} else if(commonType == DataType.f) {
+				// Not Float.compare(), NaN and -0.0 must behave as they do in Java
+				final float lhs = lhsNode.evaluateFloat(bindings);
+				final float rhs = rhsNode.evaluateFloat(bindings);
+				result = compare(lhs < rhs ? -1 : lhs == rhs ? 0 : lhs > rhs ? 1 : NAN);
+			} else if(commonType == DataType.bool
+					&& (operator == OakLexer.Eq || operator == OakLexer.Ne)) {
+				result = (lhsNode.evaluateBoolean(bindings) == rhsNode.evaluateBoolean(bindings)) == (operator == OakLexer.Eq);
+			} else {
+				result = super.evaluateBoolean(bindings);
+			}
+			break;
+
+		case OakLexer.Xor:
+			if(commonType == DataType.bool) {
+				result = lhsNode.evaluateBoolean(bindings) ^ rhsNode.evaluateBoolean(bindings);
+			} else {
+				result = super.evaluateBoolean(bindings);
+			}
+			break;
+
+		default:
+			result = super.evaluateBoolean(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public int[] evaluateInts(Columns columns) {
+		final int[] result;
+
+		if(returnType == DataType.z) {
+			final int[] lhs = lhsNode.evaluateInts(columns);
+			final int[] rhs = rhsNode.evaluateInts(columns);
+			final int size = columns.size();
+			result = new int[size];
+			switch(operator) {
+			case OakLexer.Plus:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] + rhs[i];
+				}
+				break;
+
+			case OakLexer.Minus:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] - rhs[i];
+				}
+				break;
+
+			case OakLexer.Multiply:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] * rhs[i];
+				}
+				break;
+
+			case OakLexer.Divide:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] / rhs[i];
+				}
+				break;
+
+			case OakLexer.Mod:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] % rhs[i];
+				}
+				break;
+
+			case OakLexer.And:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] & rhs[i];
+				}
+				break;
+
+			case OakLexer.Or:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] | rhs[i];
+				}
+				break;
+
+			case OakLexer.Xor:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] ^ rhs[i];
+				}
+				break;
+
+			case OakLexer.Shl:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] << rhs[i];
+				}
+				break;
+
+			case OakLexer.Shr:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] >> rhs[i];
+				}
+				break;
+
+			case OakLexer.Usr:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] >>> rhs[i];
+				}
+				break;
+
+			default:
+				throw new UnexpectedException("evaluateInts: " + operator);
+			}
+		} else {
+			result = super.evaluateInts(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public float[] evaluateFloats(Columns columns) {
+		final float[] result;
+
+		if(returnType == DataType.f) {
+			final float[] lhs = lhsNode.evaluateFloats(columns);
+			final float[] rhs = rhsNode.evaluateFloats(columns);
+			final int size = columns.size();
+			result = new float[size];
+			switch(operator) {
+			case OakLexer.Plus:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] + rhs[i];
+				}
+				break;
+
+			case OakLexer.Minus:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] - rhs[i];
+				}
+				break;
+
+			case OakLexer.Multiply:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] * rhs[i];
+				}
+				break;
+
+			case OakLexer.Divide:
+				for(int i = 0; i < size; i++) {
+					result[i] = lhs[i] / rhs[i];
+				}
+				break;
+
+			default:
+				throw new UnexpectedException("evaluateFloats: " + operator);
+			}
+		} else {
+			result = super.evaluateFloats(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public long[] evaluateBooleans(Columns columns) {
+		final long[] result;
+
+		final int size = columns.size();
+		switch(operator) {
+		case OakLexer.Land:
+		case OakLexer.Lor:
+		case OakLexer.Xor:
+			if(commonType == DataType.bool && (operator == OakLexer.Xor || rhsNode.isEager())) {
+				// A word at a time
+				final long[] lhs = lhsNode.evaluateBooleans(columns);
+				final long[] rhs = rhsNode.evaluateBooleans(columns);
+				result = Columns.newBitmap(size);
+				final int length = result.length;
+				if(operator == OakLexer.Land) {
+					for(int i = 0; i < length; i++) {
+						result[i] = lhs[i] & rhs[i];
+					}
+				} else if(operator == OakLexer.Lor) {
+					for(int i = 0; i < length; i++) {
+						result[i] = lhs[i] | rhs[i];
+					}
+				} else {
+					for(int i = 0; i < length; i++) {
+						result[i] = lhs[i] ^ rhs[i];
+					}
+				}
+				Columns.trim(result, size);
+			} else {
+				// The rhs mustn't be evaluated for every row
+				result = super.evaluateBooleans(columns);
+			}
+			break;
+
+		case OakLexer.Lt:
+		case OakLexer.Lte:
+		case OakLexer.Gt:
+		case OakLexer.Gte:
+		case OakLexer.Eq:
+		case OakLexer.Ne:
+			if(commonType == DataType.z) {
+				final int[] lhs = lhsNode.evaluateInts(columns);
+				final int[] rhs = rhsNode.evaluateInts(columns);
+				result = Columns.newBitmap(size);
+				switch(operator) {
+				case OakLexer.Lt:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] < rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Lte:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] <= rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Gt:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] > rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Gte:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] >= rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Eq:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] == rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Ne:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] != rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				default:
+					throw new UnexpectedException("evaluateBooleans: " + operator);
+				}
+			} else if(commonType == DataType.f) {
+				final float[] lhs = lhsNode.evaluateFloats(columns);
+				final float[] rhs = rhsNode.evaluateFloats(columns);
+				result = Columns.newBitmap(size);
+				switch(operator) {
+				case OakLexer.Lt:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] < rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Lte:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] <= rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Gt:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] > rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Gte:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] >= rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Eq:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] == rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				case OakLexer.Ne:
+					for(int i = 0; i < size; i++) {
+						if(lhs[i] != rhs[i]) {
+							Columns.setBit(result, i);
+						}
+					}
+					break;
+
+				default:
+					throw new UnexpectedException("evaluateBooleans: " + operator);
+				}
+			} else {
+				result = super.evaluateBooleans(columns);
+			}
+			break;
+
+		default:
+			result = super.evaluateBooleans(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	boolean isEager() {
+		final boolean result;
+
+		if(!lhsNode.isEager() || !rhsNode.isEager()) {
+			result = false;
+		} else if(commonType == DataType.z) {
+			// Integer division can throw
+			result = operator != OakLexer.Divide && operator != OakLexer.Mod;
+		} else {
+			result = commonType == DataType.f || commonType == DataType.bool;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Apply the comparison operator to the result of a three way comparison.
+	 *
+	 * @param comparison
+	 *            Negative, zero or positive as lhs is less than, equal to or
+	 *            greater than rhs; NAN if the operands are unordered.
+	 * @return The result of the comparison.
+	 */
+	private boolean compare(int comparison) {
+		final boolean result;
+
+		if(comparison == NAN) {
+			result = operator == OakLexer.Ne;
+		} else {
+			switch(operator) {
+			case OakLexer.Lt:
+				result = comparison < 0;
+				break;
+
+			case OakLexer.Lte:
+				result = comparison <= 0;
+				break;
+
+			case OakLexer.Gt:
+				result = comparison > 0;
+				break;
+
+			case OakLexer.Gte:
+				result = comparison >= 0;
+				break;
+
+			case OakLexer.Eq:
+				result = comparison == 0;
+				break;
+
+			case OakLexer.Ne:
+				result = comparison != 0;
+				break;
+
+			default:
+				throw new UnexpectedException("compare: " + operator);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	MethodHandle toMethodHandle() {
+		final MethodHandle result;
+
+		final MethodHandle lhs = ExpressionCompiler.convert(
+				lhsNode.toMethodHandle(),
+				lhsNode.getType(),
+				commonType);
+		final MethodHandle rhs = ExpressionCompiler.convert(
+				rhsNode.toMethodHandle(),
+				rhsNode.getType(),
+				commonType);
+
+		switch(operator) {
+		case OakLexer.Land:
+			// false AND <don't care>
+			result = MethodHandles.guardWithTest(
+					lhs,
+					rhs,
+					ExpressionCompiler.constant(DataType.bool, Boolean.FALSE));
+			break;
+
+		case OakLexer.Lor:
+			// true OR <don't care>
+			result = MethodHandles.guardWithTest(
+					lhs,
+					ExpressionCompiler.constant(DataType.bool, Boolean.TRUE),
+					rhs);
+			break;
+
+		default:
+			final MethodHandle operation = ExpressionCompiler.findOperator(
+					operatorNames[operator],
+					returnType,
+					commonType,
+					2);
+			if(operation == null) {
+				// No compiled implementation so use the interpreter
+				result = super.toMethodHandle();
+			} else {
+				result = ExpressionCompiler.combine(operation, lhs, rhs);
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public DataType getType() {
 		return returnType;
@@ -0,0 +1,187 @@
+package com.inexas.oak.ast;
+
+import java.lang.invoke.*;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.OakRuntimeException;
+
+/**
+ * A CompiledExpression is an expression AST that has been compiled into a
+ * chain of MethodHandles. Compile once, using Expression.compile(), and then
+ * evaluate as often as you like: there is no tree walking and, for the z, f and
+ * bool data types, no boxing of intermediate results.
+ *
+ * Use the evaluate method that matches the expression's type to avoid boxing
+ * the result. If the expression refers to variables then pass their values in
+ * a Bindings.
+ */
+public class CompiledExpression {
+	private final DataType type;
+	/** (Bindings)int, float, boolean or Object depending on the type */
+	private final MethodHandle handle;
+	/** (Bindings)Object */
+	private final MethodHandle objectHandle;
+	/** (Bindings)float, null if the expression is not z or f */
+	private final MethodHandle floatHandle;
+
+	CompiledExpression(DataType type, MethodHandle handle) {
+		this.type = type;
+		this.handle = handle;
+		objectHandle = handle.asType(MethodType.methodType(Object.class, Bindings.class));
+		if(type == DataType.z || type == DataType.f) {
+			floatHandle = handle.asType(MethodType.methodType(float.class, Bindings.class));
+		} else {
+			floatHandle = null;
+		}
+	}
+
+	/**
+	 * @return The data type that the expression returns.
+	 */
+	public DataType getType() {
+		return type;
+	}
+
+	/**
+	 * Evaluate the expression.
+	 *
+	 * @return The result, boxed if the expression is of a primitive type.
+	 */
+	public Object evaluate() {
+		return evaluate(null);
+	}
+
+	/**
+	 * @param bindings
+	 *            The values of the expression's variables or null if it has
+	 *            none.
+	 * @return The result.
+	 * @see #evaluate()
+	 */
+	public Object evaluate(Bindings bindings) {
+		final Object result;
+
+		try {
+			result = objectHandle.invokeExact(bindings);
+		} catch(final Throwable t) {
+			throw toRuntimeException(t);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type z.
+	 *
+	 * @return The result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type z.
+	 */
+	public int evaluateInt() throws OakRuntimeException {
+		return evaluateInt(null);
+	}
+
+	/**
+	 * @param bindings
+	 *            The values of the expression's variables or null if it has
+	 *            none.
+	 * @return The result.
+	 * @see #evaluateInt()
+	 */
+	public int evaluateInt(Bindings bindings) throws OakRuntimeException {
+		final int result;
+
+		checkType(type == DataType.z, "z");
+		try {
+			result = (int)handle.invokeExact(bindings);
+		} catch(final Throwable t) {
+			throw toRuntimeException(t);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type f or z.
+	 *
+	 * @return The result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type f or z.
+	 */
+	public float evaluateFloat() throws OakRuntimeException {
+		return evaluateFloat(null);
+	}
+
+	/**
+	 * @param bindings
+	 *            The values of the expression's variables or null if it has
+	 *            none.
+	 * @return The result.
+	 * @see #evaluateFloat()
+	 */
+	public float evaluateFloat(Bindings bindings) throws OakRuntimeException {
+		final float result;
+
+		checkType(floatHandle != null, "f");
+		try {
+			result = (float)floatHandle.invokeExact(bindings);
+		} catch(final Throwable t) {
+			throw toRuntimeException(t);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type bool.
+	 *
+	 * @return The result.
+	 * @throws OakRuntimeException
+	 *             Thrown if the expression is not of type bool.
+	 */
+	public boolean evaluateBoolean() throws OakRuntimeException {
+		return evaluateBoolean(null);
+	}
+
+	/**
+	 * @param bindings
+	 *            The values of the expression's variables or null if it has
+	 *            none.
+	 * @return The result.
+	 * @see #evaluateBoolean()
+	 */
+	public boolean evaluateBoolean(Bindings bindings) throws OakRuntimeException {
+		final boolean result;
+
+		checkType(type == DataType.bool, "bool");
+		try {
+			result = (boolean)handle.invokeExact(bindings);
+		} catch(final Throwable t) {
+			throw toRuntimeException(t);
+		}
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "CompiledExpression<" + type + '>';
+	}
+
+	private void checkType(boolean ok, String expected) throws OakRuntimeException {
+		if(!ok) {
+			throw new OakRuntimeException("Expression is of type " + type + ", not " + expected);
+		}
+	}
+
+	private RuntimeException toRuntimeException(Throwable t) {
+		if(t instanceof Error) {
+			throw (Error)t;
+		}
+		return t instanceof RuntimeException
+				? (RuntimeException)t
+				: new OakRuntimeException("Error evaluating expression", t);
+	}
+}
@@ -1,7 +1,10 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import org.antlr.v4.runtime.ParserRuleContext;
-import com.inexas.oak.DataType;
+import com.inexas.exception.UnexpectedException;
+import com.inexas.oak.*;
+import com.inexas.oak.DataType.*;
 
 public class ConditionalNode extends ExpressionNode {
 	private final boolean isStatic;
@@ -93,19 +96,155 @@ public class ConditionalNode extends ExpressionNode {
 			throwInvalidTypes();
 		}
 
-		isStatic = trueValue.isStatic() && falseValue.isStatic();
+		isStatic = condition.isStatic() && trueValue.isStatic() && falseValue.isStatic();
 	}
 
 	@Override
-	public ConstantNode evaluate() {
+	public ConstantNode evaluate(Bindings bindings) {
 		final ConstantNode result;
 
-		final boolean isTrue = ((Boolean)condition.evaluate().getValue()).booleanValue();
-		result = isTrue ? trueValue.evaluate() : falseValue.evaluate();
+		final boolean isTrue = ((Boolean)condition.evaluate(bindings).getValue()).booleanValue();
+		final ConstantNode value = isTrue ? trueValue.evaluate(bindings) : falseValue.evaluate(bindings);
+		if(value.getType() == type) {
+			result = value;
+		} else {
+			// E.g. true ? 1 : 2.0, widen the branch to the common type
+			try {
+				result = new ConstantNode(context, type, DataType.convert(value.getValue(), type.javaClass));
+			} catch(final TypeMismatchException | OverflowException e) {
+				throw new UnexpectedException("evaluate: " + type);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public int evaluateInt(Bindings bindings) {
+		return condition.evaluateBoolean(bindings)
+				? trueValue.evaluateInt(bindings)
+				: falseValue.evaluateInt(bindings);
+	}
+
+	@Override
+	public float evaluateFloat(Bindings bindings) {
+		final float result;
+
+		if(type == DataType.z || type == DataType.f) {
+			result = condition.evaluateBoolean(bindings)
+					? trueValue.evaluateFloat(bindings)
+					: falseValue.evaluateFloat(bindings);
+		} else {
+			result = super.evaluateFloat(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean evaluateBoolean(Bindings bindings) {
+		return condition.evaluateBoolean(bindings)
+				? trueValue.evaluateBoolean(bindings)
+				: falseValue.evaluateBoolean(bindings);
+	}
+
+	@Override
+	public int[] evaluateInts(Columns columns) {
+		final int[] result;
+
+		if(isEager()) {
+			// Evaluate both branches and select...
+			final long[] select = condition.evaluateBooleans(columns);
+			final int[] t = trueValue.evaluateInts(columns);
+			final int[] f = falseValue.evaluateInts(columns);
+			final int size = columns.size();
+			result = new int[size];
+			for(int i = 0; i < size; i++) {
+				result[i] = Columns.getBit(select, i) ? t[i] : f[i];
+			}
+		} else {
+			// ...or row by row if that's not safe
+			result = super.evaluateInts(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public float[] evaluateFloats(Columns columns) {
+		final float[] result;
+
+		if(isEager() && (type == DataType.z || type == DataType.f)) {
+			final long[] select = condition.evaluateBooleans(columns);
+			final float[] t = trueValue.evaluateFloats(columns);
+			final float[] f = falseValue.evaluateFloats(columns);
+			final int size = columns.size();
+			result = new float[size];
+			for(int i = 0; i < size; i++) {
+				result[i] = Columns.getBit(select, i) ? t[i] : f[i];
+			}
+		} else {
+			result = super.evaluateFloats(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public long[] evaluateBooleans(Columns columns) {
+		final long[] result;
+
+		if(isEager()) {
+			final long[] select = condition.evaluateBooleans(columns);
+			final long[] t = trueValue.evaluateBooleans(columns);
+			final long[] f = falseValue.evaluateBooleans(columns);
+			final int size = columns.size();
+			result = Columns.newBitmap(size);
+			final int length = result.length;
+			for(int i = 0; i < length; i++) {
+				result[i] = (select[i] & t[i]) | (~select[i] & f[i]);
+			}
+			Columns.trim(result, size);
+		} else {
+			result = super.evaluateBooleans(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	boolean isEager() {
+		return condition.isEager() && trueValue.isEager() && falseValue.isEager();
+	}
+
+	/**
+	 * If the condition is static then the conditional can be replaced by the
+	 * branch that it selects providing that doesn't change the data type.
+	 *
+	 * @return The selected branch or this node.
+	 */
+	ExpressionNode fold() {
+		final ExpressionNode result;
+
+		if(condition.isStatic()) {
+			final boolean isTrue = ((Boolean)condition.evaluate().getValue()).booleanValue();
+			final ExpressionNode branch = isTrue ? trueValue : falseValue;
+			result = branch.getType() == type ? branch : this;
+		} else {
+			result = this;
+		}
 
 		return result;
 	}
 
+	@Override
+	MethodHandle toMethodHandle() {
+		return MethodHandles.guardWithTest(
+				condition.toMethodHandle(),
+				ExpressionCompiler.convert(trueValue.toMethodHandle(), trueValue.getType(), type),
+				ExpressionCompiler.convert(falseValue.toMethodHandle(), falseValue.getType(), type));
+	}
+
 	@Override
 	public DataType getType() {
 		return type;
@@ -1,10 +1,13 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.MethodHandle;
 import java.math.*;
 import java.time.*;
 import java.time.temporal.Temporal;
+import java.util.Arrays;
 import org.antlr.v4.runtime.ParserRuleContext;
 import com.inexas.oak.*;
+import com.inexas.oak.advisory.Locus;
 import com.inexas.oak.ast.OakParser.LiteralContext;
 import com.inexas.util.*;
 
@@ -108,6 +111,28 @@ public class ConstantNode extends ExpressionNode {
 		this.type = type;
 	}
 
+	/**
+	 * Copy a constant to a new position in the source. This is used when a
+	 * static expression is folded so the result takes the place of the
+	 * expression it replaces.
+	 *
+	 * @param context
+	 *            The position of the folded expression.
+	 * @param constant
+	 *            The constant to copy.
+	 */
+	ConstantNode(ParserRuleContext context, ConstantNode constant) {
+		super(context);
+		value = constant.value;
+		type = constant.type;
+	}
+
+	ConstantNode(ParserRuleContext context, DataType type, Object value) {
+		super(context);
+		this.value = value;
+		this.type = type;
+	}
+
 	public ConstantNode(LiteralContext context, Path value) {
 		super(context);
 		this.value = value;
@@ -125,10 +150,45 @@ public class ConstantNode extends ExpressionNode {
 	}
 
 	@Override
-	public ConstantNode evaluate() {
+	public ConstantNode evaluate(Bindings bindings) {
 		return this;
 	}
 
+	@Override
+	public int[] evaluateInts(Columns columns) {
+		final int[] result = new int[columns.size()];
+		Arrays.fill(result, ((Integer)value).intValue());
+		return result;
+	}
+
+	@Override
+	public float[] evaluateFloats(Columns columns) {
+		final float[] result = new float[columns.size()];
+		Arrays.fill(result, ((Number)value).floatValue());
+		return result;
+	}
+
+	@Override
+	public long[] evaluateBooleans(Columns columns) {
+		final int size = columns.size();
+		final long[] result = Columns.newBitmap(size);
+		if(((Boolean)value).booleanValue()) {
+			Arrays.fill(result, -1L);
+			Columns.trim(result, size);
+		}
+		return result;
+	}
+
+	@Override
+	boolean isEager() {
+		return true;
+	}
+
+	@Override
+	MethodHandle toMethodHandle() {
+		return ExpressionCompiler.constant(type, value);
+	}
+
 	@Override
 	public void accept(AstVisitor visitor) {
 		assert visitor.enterEveryNode(this);
@@ -215,7 +275,7 @@ public class ConstantNode extends ExpressionNode {
 
 	public Float getFloat() {
 		final Float result;
-		if(type == DataType.z) {
+		if(type == DataType.f) {
 			result = (Float)value;
 		} else {
 			error("Wrong data type. Expected decimal but is: " + type);
@@ -224,12 +284,12 @@ public class ConstantNode extends ExpressionNode {
 		return result;
 	}
 
-	public BigInteger getBigFloat() {
-		final BigInteger result;
+	public BigDecimal getBigFloat() {
+		final BigDecimal result;
 		if(type == DataType.F) {
-			result = (BigInteger)value;
+			result = (BigDecimal)value;
 		} else {
-			error("Wrong data type. Expected INTEGER but is: " + type);
+			error("Wrong data type. Expected DECIMAL but is: " + type);
 			result = null;
 		}
 		return result;
@@ -284,6 +344,48 @@ public class ConstantNode extends ExpressionNode {
 		return value;
 	}
 
+	/**
+	 * Create a constant for a value that was read without a parse tree, by an
+	 * OakReader for example.
+	 *
+	 * @param locus
+	 *            The position of the value in the source.
+	 * @param type
+	 *            The type of the value.
+	 * @param value
+	 *            The value.
+	 * @return A constant that reports errors at the given position.
+	 */
+	public static ConstantNode toConstant(Locus locus, DataType type, Object value) {
+		return new ConstantNode(null, type, value) {
+			@Override
+			public int getLine() {
+				return locus.getLine();
+			}
+
+			@Override
+			public int getColumn() {
+				return locus.getColumn();
+			}
+		};
+	}
+
+	/**
+	 * @param context
+	 *            The position of the expression in the source.
+	 * @return A null constant that stands in for an expression that has been
+	 *         reported as an error.
+	 * @see ExpressionNode#isError()
+	 */
+	static ConstantNode toErrorConstant(ParserRuleContext context) {
+		return new ConstantNode(context) {
+			@Override
+			boolean isError() {
+				return true;
+			}
+		};
+	}
+
 	public static Node toIdentifierConstant(LiteralContext context, String text) {
 		return new ConstantNode(context, new Identifier(text));
 	}
@@ -0,0 +1,605 @@
+package com.inexas.oak.ast;
+
+import java.lang.invoke.*;
+import java.math.*;
+import com.inexas.exception.UnexpectedException;
+import com.inexas.oak.*;
+
+/**
+ * Support for compiling an ExpressionNode tree into a chain of MethodHandles.
+ * Each node compiles itself, see ExpressionNode.toMethodHandle(), using the
+ * helpers here. The operator implementations are deliberately simple static
+ * methods so that the JIT can inline the whole chain.
+ *
+ * The compiled representation of each DataType is: z: int, f: float, bool:
+ * boolean, any: Object and the DataType's Java class for everything else.
+ * Every node's handle takes the Bindings as its only argument.
+ */
+final class ExpressionCompiler {
+	private final static MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	private ExpressionCompiler() {
+		// Static methods only
+	}
+
+	/**
+	 * @param type
+	 *            The type to look up.
+	 * @return The class used to represent a given DataType in compiled
+	 *         expressions.
+	 */
+	static Class<?> getCompiledClass(DataType type) {
+		final Class<?> result;
+
+		switch(type) {
+		case z:
+			result = int.class;
+			break;
+
+		case f:
+			result = float.class;
+			break;
+
+		case bool:
+			result = boolean.class;
+			break;
+
+		case any:
+			result = Object.class;
+			break;
+
+		case F:
+		case Z:
+		case cardinality:
+		case date:
+		case datetime:
+		case identifier:
+		case path:
+		case text:
+		case time:
+		default:
+			result = type.javaClass;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param type
+	 *            The DataType of the value.
+	 * @param value
+	 *            The value to return.
+	 * @return A handle (Bindings)value that always returns the value.
+	 */
+	static MethodHandle constant(DataType type, Object value) {
+		return MethodHandles.dropArguments(
+				MethodHandles.constant(getCompiledClass(type), value),
+				0,
+				Bindings.class);
+	}
+
+	/**
+	 * @param type
+	 *            The DataType of the variable.
+	 * @param slot
+	 *            The variable's slot.
+	 * @return A handle (Bindings)value that reads the variable.
+	 */
+	static MethodHandle variable(DataType type, int slot) {
+		final MethodHandle result;
+
+		final Class<?> compiledClass = getCompiledClass(type);
+		final MethodHandle getter;
+		switch(type) {
+		case z:
+			getter = findVirtual(Bindings.class, "getInt", int.class, int.class);
+			break;
+
+		case f:
+			getter = findVirtual(Bindings.class, "getFloat", float.class, int.class);
+			break;
+
+		case bool:
+			getter = findVirtual(Bindings.class, "getBoolean", boolean.class, int.class);
+			break;
+
+		case F:
+		case Z:
+		case any:
+		case cardinality:
+		case date:
+		case datetime:
+		case identifier:
+		case path:
+		case text:
+		case time:
+		default:
+			getter = findVirtual(Bindings.class, "get", Object.class, int.class);
+		}
+		result = MethodHandles.insertArguments(getter, 1, new Integer(slot)).asType(
+				MethodType.methodType(compiledClass, Bindings.class));
+
+		return result;
+	}
+
+	/**
+	 * Find an operator implementation in this class.
+	 *
+	 * @param name
+	 *            The name of the operator, e.g. "plus".
+	 * @param returnType
+	 *            The DataType the operator returns.
+	 * @param operandType
+	 *            The DataType of the operand(s).
+	 * @param operandCount
+	 *            The number of operands: 1 or 2.
+	 * @return The implementation or null if there isn't one for the types
+	 *         given.
+	 */
+	static MethodHandle findOperator(
+			String name,
+			DataType returnType,
+			DataType operandType,
+			int operandCount) {
+		MethodHandle result;
+
+		final Class<?> returnClass = getCompiledClass(returnType);
+		final Class<?> operandClass = getCompiledClass(operandType);
+		result = findStatic(name, returnClass, operandClass, operandCount);
+		if(result == null && !operandClass.isPrimitive()) {
+			// Try the generic version, e.g. eq(Object, Object)...
+			result = findStatic(name, returnClass, Object.class, operandCount);
+			if(result != null) {
+				final Class<?>[] parameterTypes = new Class<?>[operandCount];
+				for(int i = 0; i < operandCount; i++) {
+					parameterTypes[i] = operandClass;
+				}
+				result = result.asType(MethodType.methodType(returnClass, parameterTypes));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Apply a binary operator to the results of two handles.
+	 *
+	 * @param operator
+	 *            The operator: (lhs, rhs)result.
+	 * @param lhs
+	 *            The handle for the left hand side: (Bindings)lhs.
+	 * @param rhs
+	 *            The handle for the right hand side: (Bindings)rhs.
+	 * @return A handle (Bindings)result.
+	 */
+	static MethodHandle combine(MethodHandle operator, MethodHandle lhs, MethodHandle rhs) {
+		final MethodHandle result;
+
+		// Do the rhs first so the lhs position doesn't change
+		final MethodHandle tmp = MethodHandles.collectArguments(operator, 1, rhs);
+		result = shareBindings(MethodHandles.collectArguments(tmp, 0, lhs));
+
+		return result;
+	}
+
+	/**
+	 * Collecting the operands of a handle leaves it with one Bindings argument
+	 * per operand, merge them back into one.
+	 *
+	 * @param handle
+	 *            A handle (Bindings, Bindings, ...)result.
+	 * @return A handle (Bindings)result.
+	 */
+	static MethodHandle shareBindings(MethodHandle handle) {
+		final int count = handle.type().parameterCount();
+		return MethodHandles.permuteArguments(
+				handle,
+				MethodType.methodType(handle.type().returnType(), Bindings.class),
+				new int[count]);
+	}
+
+	/**
+	 * Convert the value returned by a handle from one DataType to another using
+	 * the same widening rules as BinaryNode: z to Z to F and z to f to F.
+	 *
+	 * @param handle
+	 *            The handle to convert.
+	 * @param from
+	 *            The DataType returned by the handle.
+	 * @param to
+	 *            The desired DataType.
+	 * @return A handle that returns the compiled class of the to DataType.
+	 */
+	static MethodHandle convert(MethodHandle handle, DataType from, DataType to) {
+		final MethodHandle result;
+
+		if(from == to) {
+			result = handle;
+		} else if(to == DataType.Z && from == DataType.z) {
+			result = MethodHandles.filterReturnValue(
+					handle.asType(handle.type().changeReturnType(long.class)),
+					findStatic(BigInteger.class, "valueOf", BigInteger.class, long.class));
+		} else if(to == DataType.F && from == DataType.z) {
+			result = MethodHandles.filterReturnValue(
+					handle.asType(handle.type().changeReturnType(long.class)),
+					findStatic(BigDecimal.class, "valueOf", BigDecimal.class, long.class));
+		} else if(to == DataType.F && from == DataType.f) {
+			result = MethodHandles.filterReturnValue(
+					handle.asType(handle.type().changeReturnType(double.class)),
+					findStatic(BigDecimal.class, "valueOf", BigDecimal.class, double.class));
+		} else if(to == DataType.F && from == DataType.Z) {
+			result = MethodHandles.filterReturnValue(
+					handle,
+					findStatic(ExpressionCompiler.class, "toBigDecimal", BigDecimal.class, BigInteger.class));
+		} else {
+			// E.g. int to float or anything to Object
+			result = handle.asType(handle.type().changeReturnType(getCompiledClass(to)));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find a method using the lookup for this package.
+	 *
+	 * @param clazz
+	 *            The class containing the method.
+	 * @param name
+	 *            The method's name.
+	 * @param returnType
+	 *            The method's return type.
+	 * @param parameterTypes
+	 *            The method's parameter types.
+	 * @return The method handle.
+	 * @throws UnexpectedException
+	 *             If the method can't be found.
+	 */
+	static MethodHandle findStatic(
+			Class<?> clazz,
+			String name,
+			Class<?> returnType,
+			Class<?>... parameterTypes) throws UnexpectedException {
+		try {
+			return lookup.findStatic(clazz, name, MethodType.methodType(returnType, parameterTypes));
+		} catch(NoSuchMethodException | IllegalAccessException e) {
+			throw new UnexpectedException("findStatic: " + clazz.getSimpleName() + '.' + name);
+		}
+	}
+
+	/**
+	 * Find a method using the lookup for this package.
+	 *
+	 * @param clazz
+	 *            The class containing the method.
+	 * @param name
+	 *            The method's name.
+	 * @param returnType
+	 *            The method's return type.
+	 * @param parameterTypes
+	 *            The method's parameter types.
+	 * @return The method handle.
+	 * @throws UnexpectedException
+	 *             If the method can't be found.
+	 */
+	static MethodHandle findVirtual(
+			Class<?> clazz,
+			String name,
+			Class<?> returnType,
+			Class<?>... parameterTypes) throws UnexpectedException {
+		try {
+			return lookup.findVirtual(clazz, name, MethodType.methodType(returnType, parameterTypes));
+		} catch(NoSuchMethodException | IllegalAccessException e) {
+			throw new UnexpectedException("findVirtual: " + clazz.getSimpleName() + '.' + name);
+		}
+	}
+
+	private static MethodHandle findStatic(
+			String name,
+			Class<?> returnType,
+			Class<?> operandType,
+			int operandCount) {
+		MethodHandle result;
+
+		final Class<?>[] parameterTypes = new Class<?>[operandCount];
+		for(int i = 0; i < operandCount; i++) {
+			parameterTypes[i] = operandType;
+		}
+		try {
+			result = lookup.findStatic(
+					ExpressionCompiler.class,
+					name,
+					MethodType.methodType(returnType, parameterTypes));
+		} catch(NoSuchMethodException | IllegalAccessException e) {
+			result = null;
+		}
+
+		return result;
+	}
+
+	static BigDecimal toBigDecimal(BigInteger value) {
+		return new BigDecimal(value);
+	}
+
+	// z...
+
+	static int plus(int lhs, int rhs) {
+		return lhs + rhs;
+	}
+
+	static int minus(int lhs, int rhs) {
+		return lhs - rhs;
+	}
+
+	static int multiply(int lhs, int rhs) {
+		return lhs * rhs;
+	}
+
+	static int divide(int lhs, int rhs) {
+		return lhs / rhs;
+	}
+
+	static int mod(int lhs, int rhs) {
+		return lhs % rhs;
+	}
+
+	static int and(int lhs, int rhs) {
+		return lhs & rhs;
+	}
+
+	static int or(int lhs, int rhs) {
+		return lhs | rhs;
+	}
+
+	static int xor(int lhs, int rhs) {
+		return lhs ^ rhs;
+	}
+
+	static int shl(int lhs, int rhs) {
+		return lhs << rhs;
+	}
+
+	static int shr(int lhs, int rhs) {
+		return lhs >> rhs;
+	}
+
+	static int usr(int lhs, int rhs) {
+		return lhs >>> rhs;
+	}
+
+	static boolean lt(int lhs, int rhs) {
+		return lhs < rhs;
+	}
+
+	static boolean lte(int lhs, int rhs) {
+		return lhs <= rhs;
+	}
+
+	static boolean gt(int lhs, int rhs) {
+		return lhs > rhs;
+	}
+
+	static boolean gte(int lhs, int rhs) {
+		return lhs >= rhs;
+	}
+
+	static boolean eq(int lhs, int rhs) {
+		return lhs == rhs;
+	}
+
+	static boolean ne(int lhs, int rhs) {
+		return lhs != rhs;
+	}
+
+	static int negate(int operand) {
+		return -operand;
+	}
+
+	static int complement(int operand) {
+		return ~operand;
+	}
+
+	// f...
+
+	static float plus(float lhs, float rhs) {
+		return lhs + rhs;
+	}
+
+	static float minus(float lhs, float rhs) {
+		return lhs - rhs;
+	}
+
+	static float multiply(float lhs, float rhs) {
+		return lhs * rhs;
+	}
+
+	static float divide(float lhs, float rhs) {
+		return lhs / rhs;
+	}
+
+	static boolean lt(float lhs, float rhs) {
+		return lhs < rhs;
+	}
+
+	static boolean lte(float lhs, float rhs) {
+		return lhs <= rhs;
+	}
+
+	static boolean gt(float lhs, float rhs) {
+		return lhs > rhs;
+	}
+
+	static boolean gte(float lhs, float rhs) {
+		return lhs >= rhs;
+	}
+
+	static boolean eq(float lhs, float rhs) {
+		return lhs == rhs;
+	}
+
+	static boolean ne(float lhs, float rhs) {
+		return lhs != rhs;
+	}
+
+	static float negate(float operand) {
+		return -operand;
+	}
+
+	// bool...
+
+	static boolean xor(boolean lhs, boolean rhs) {
+		return lhs ^ rhs;
+	}
+
+	static boolean eq(boolean lhs, boolean rhs) {
+		return lhs == rhs;
+	}
+
+	static boolean ne(boolean lhs, boolean rhs) {
+		return lhs != rhs;
+	}
+
+	static boolean not(boolean operand) {
+		return !operand;
+	}
+
+	// Z...
+
+	static BigInteger plus(BigInteger lhs, BigInteger rhs) {
+		return lhs.add(rhs);
+	}
+
+	static BigInteger minus(BigInteger lhs, BigInteger rhs) {
+		return lhs.subtract(rhs);
+	}
+
+	static BigInteger multiply(BigInteger lhs, BigInteger rhs) {
+		return lhs.multiply(rhs);
+	}
+
+	static BigInteger divide(BigInteger lhs, BigInteger rhs) {
+		return lhs.divide(rhs);
+	}
+
+	static BigInteger mod(BigInteger lhs, BigInteger rhs) {
+		return lhs.remainder(rhs);
+	}
+
+	static BigInteger and(BigInteger lhs, BigInteger rhs) {
+		return lhs.and(rhs);
+	}
+
+	static BigInteger or(BigInteger lhs, BigInteger rhs) {
+		return lhs.or(rhs);
+	}
+
+	static BigInteger xor(BigInteger lhs, BigInteger rhs) {
+		return lhs.xor(rhs);
+	}
+
+	static BigInteger shl(BigInteger lhs, BigInteger rhs) {
+		return lhs.shiftLeft(DataType.getInt(rhs));
+	}
+
+	static BigInteger shr(BigInteger lhs, BigInteger rhs) {
+		return lhs.shiftRight(DataType.getInt(rhs));
+	}
+
+	static boolean lt(BigInteger lhs, BigInteger rhs) {
+		return lhs.compareTo(rhs) < 0;
+	}
+
+	static boolean lte(BigInteger lhs, BigInteger rhs) {
+		return lhs.compareTo(rhs) <= 0;
+	}
+
+	static boolean gt(BigInteger lhs, BigInteger rhs) {
+		return lhs.compareTo(rhs) > 0;
+	}
+
+	static boolean gte(BigInteger lhs, BigInteger rhs) {
+		return lhs.compareTo(rhs) >= 0;
+	}
+
+	static BigInteger negate(BigInteger operand) {
+		return operand.negate();
+	}
+
+	// F...
+
+	static BigDecimal plus(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.add(rhs);
+	}
+
+	static BigDecimal minus(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.subtract(rhs);
+	}
+
+	static BigDecimal multiply(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.multiply(rhs);
+	}
+
+	static BigDecimal divide(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.divide(rhs);
+	}
+
+	static boolean lt(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.compareTo(rhs) < 0;
+	}
+
+	static boolean lte(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.compareTo(rhs) <= 0;
+	}
+
+	static boolean gt(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.compareTo(rhs) > 0;
+	}
+
+	static boolean gte(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.compareTo(rhs) >= 0;
+	}
+
+	static boolean eq(BigDecimal lhs, BigDecimal rhs) {
+		// Beware, don't use equals()
+		return lhs.compareTo(rhs) == 0;
+	}
+
+	static boolean ne(BigDecimal lhs, BigDecimal rhs) {
+		return lhs.compareTo(rhs) != 0;
+	}
+
+	static BigDecimal negate(BigDecimal operand) {
+		return operand.negate();
+	}
+
+	// text...
+
+	static String plus(String lhs, String rhs) {
+		return lhs + rhs;
+	}
+
+	static boolean lt(String lhs, String rhs) {
+		return lhs.compareTo(rhs) < 0;
+	}
+
+	static boolean lte(String lhs, String rhs) {
+		return lhs.compareTo(rhs) <= 0;
+	}
+
+	static boolean gt(String lhs, String rhs) {
+		return lhs.compareTo(rhs) > 0;
+	}
+
+	static boolean gte(String lhs, String rhs) {
+		return lhs.compareTo(rhs) >= 0;
+	}
+
+	// Everything else...
+
+	static boolean eq(Object lhs, Object rhs) {
+		return lhs.equals(rhs);
+	}
+
+	static boolean ne(Object lhs, Object rhs) {
+		return !lhs.equals(rhs);
+	}
+}
@@ -1,8 +1,9 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import java.math.BigDecimal;
 import org.antlr.v4.runtime.ParserRuleContext;
-import com.inexas.oak.DataType;
+import com.inexas.oak.*;
 import com.inexas.oak.advisory.Advisory;
 import com.inexas.tad.TadContext;
 
@@ -63,16 +64,228 @@ public abstract class ExpressionNode extends Node {
 	/**
 	 * Evaluate the the value of this expression.
 	 *
+	 * @param bindings
+	 *            The values of the expression's variables or null if the
+	 *            expression has none.
 	 * @return The evaluated value of the expression.
 	 */
-	public abstract ConstantNode evaluate();
+	public abstract ConstantNode evaluate(Bindings bindings);
+
+	/**
+	 * Evaluate the the value of an expression without variables.
+	 *
+	 * @return The evaluated value of the expression.
+	 */
+	public ConstantNode evaluate() {
+		return evaluate(null);
+	}
+
+	/**
+	 * Evaluate an expression of type z without boxing the result. Nodes that
+	 * can work on primitives override this, the default implementation
+	 * unboxes the result of evaluate().
+	 *
+	 * @param bindings
+	 *            The values of the expression's variables or null if the
+	 *            expression has none.
+	 * @return The evaluated value of the expression.
+	 */
+	public int evaluateInt(Bindings bindings) {
+		return ((Integer)getValue(bindings)).intValue();
+	}
+
+	/**
+	 * Evaluate an expression of type f, or z widened to a float, without
+	 * boxing the result.
+	 *
+	 * @param bindings
+	 *            The values of the expression's variables or null if the
+	 *            expression has none.
+	 * @return The evaluated value of the expression.
+	 * @see #evaluateInt(Bindings)
+	 */
+	public float evaluateFloat(Bindings bindings) {
+		return getType() == DataType.z
+				? evaluateInt(bindings)
+				: ((Number)getValue(bindings)).floatValue();
+	}
+
+	/**
+	 * Evaluate an expression of type bool without boxing the result.
+	 *
+	 * @param bindings
+	 *            The values of the expression's variables or null if the
+	 *            expression has none.
+	 * @return The evaluated value of the expression.
+	 * @see #evaluateInt(Bindings)
+	 */
+	public boolean evaluateBoolean(Bindings bindings) {
+		return ((Boolean)getValue(bindings)).booleanValue();
+	}
+
+	/**
+	 * @return The evaluated value of an expression without variables.
+	 * @see #evaluateInt(Bindings)
+	 */
+	public int evaluateInt() {
+		return evaluateInt(null);
+	}
+
+	/**
+	 * @return The evaluated value of an expression without variables.
+	 * @see #evaluateFloat(Bindings)
+	 */
+	public float evaluateFloat() {
+		return evaluateFloat(null);
+	}
+
+	/**
+	 * @return The evaluated value of an expression without variables.
+	 * @see #evaluateBoolean(Bindings)
+	 */
+	public boolean evaluateBoolean() {
+		return evaluateBoolean(null);
+	}
+
+	/**
+	 * Evaluate an expression of type z for every row in a batch. Nodes that
+	 * can work a column at a time override this, the default implementation
+	 * evaluates row by row.
+	 *
+	 * @param columns
+	 *            The values of the expression's variables.
+	 * @return The results, one per row. This may be one of the input columns
+	 *         so must not be modified.
+	 */
+	public int[] evaluateInts(Columns columns) {
+		final int size = columns.size();
+		final int[] result = new int[size];
+
+		final Bindings bindings = new Bindings(columns.getVariables());
+		for(int row = 0; row < size; row++) {
+			columns.bind(row, bindings);
+			result[row] = evaluateInt(bindings);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type f, or z widened to float, for every row
+	 * in a batch.
+	 *
+	 * @param columns
+	 *            The values of the expression's variables.
+	 * @return The results, one per row. This may be one of the input columns
+	 *         so must not be modified.
+	 * @see #evaluateInts(Columns)
+	 */
+	public float[] evaluateFloats(Columns columns) {
+		final int size = columns.size();
+		final float[] result = new float[size];
+
+		if(getType() == DataType.z) {
+			final int[] ints = evaluateInts(columns);
+			for(int row = 0; row < size; row++) {
+				result[row] = ints[row];
+			}
+		} else {
+			final Bindings bindings = new Bindings(columns.getVariables());
+			for(int row = 0; row < size; row++) {
+				columns.bind(row, bindings);
+				result[row] = evaluateFloat(bindings);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate an expression of type bool for every row in a batch.
+	 *
+	 * @param columns
+	 *            The values of the expression's variables.
+	 * @return The results as a bitmap, see Columns. This may be one of the
+	 *         input columns so must not be modified.
+	 * @see #evaluateInts(Columns)
+	 */
+	public long[] evaluateBooleans(Columns columns) {
+		final int size = columns.size();
+		final long[] result = Columns.newBitmap(size);
+
+		final Bindings bindings = new Bindings(columns.getVariables());
+		for(int row = 0; row < size; row++) {
+			columns.bind(row, bindings);
+			if(evaluateBoolean(bindings)) {
+				Columns.setBit(result, row);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Column at a time evaluation evaluates every row of both sides of
+	 * short-circuit operators and conditionals. That is only safe if doing so
+	 * can't fail or have side effects.
+	 *
+	 * @return True if this node can safely be evaluated for rows whose value
+	 *         is not needed.
+	 */
+	boolean isEager() {
+		return false;
+	}
+
+	/**
+	 * @return True if this node stands in for something that has already
+	 *         been reported to the Advisory, e.g. an unresolved symbol, so
+	 *         expressions that use it should not be built or type checked.
+	 */
+	boolean isError() {
+		return false;
+	}
+
+	/**
+	 * Compile this expression into a reusable evaluator. The compiled form is a
+	 * chain of MethodHandles that the JIT can inline and that works on
+	 * primitives for the z, f and bool data types.
+	 *
+	 * @return The compiled expression.
+	 */
+	public CompiledExpression compile() {
+		return new CompiledExpression(getType(), toMethodHandle());
+	}
+
+	/**
+	 * Return a MethodHandle that evaluates this node. The handle takes the
+	 * Bindings as its only argument and returns the value as
+	 * ExpressionCompiler.getCompiledClass(getType()). The default
+	 * implementation falls back on the interpreter, override this method if
+	 * the node can do better.
+	 *
+	 * @return A MethodHandle that evaluates this node.
+	 */
+	MethodHandle toMethodHandle() {
+		final MethodHandle getValue = ExpressionCompiler.findVirtual(
+				ExpressionNode.class,
+				"getValue",
+				Object.class,
+				Bindings.class).bindTo(this);
+		return getValue.asType(MethodType.methodType(
+				ExpressionCompiler.getCompiledClass(getType()),
+				Bindings.class));
+	}
 
 	protected void throwInvalidTypes() {
 		throw new RuntimeException("Invalid data types: " + toString());
 	}
 
+	Object getValue(Bindings bindings) {
+		return evaluate(bindings).getValue();
+	}
+
 	Object getValue() {
-		return evaluate().getValue();
+		return getValue(null);
 	}
 
 	protected void error(String message) {
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.ast;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
+import java.nio.file.StandardOpenOption;
+import org.antlr.v4.runtime.ANTLRInputStream;
+
+/**
+ * Oak files are always read as UTF-8 whatever the platform's default charset.
+ * Invalid UTF-8 is reported as an error rather than silently replaced.
+ */
+public class FileInput {
+
+	private FileInput() {
+		// Static methods only
+	}
+
+	/**
+	 * Map a file into memory and decode it straight into the character array
+	 * that the lexer reads. Unlike reading through a Reader into an
+	 * ANTLRInputStream there are no intermediate buffers and the bytes are
+	 * never copied onto the heap. The array is allocated once with one char
+	 * per byte, an upper bound, so for non-ASCII input it is larger than the
+	 * content; the stream only reads up to the number of characters decoded.
+	 * The heap still holds the whole file as chars.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @return A stream of the decoded characters.
+	 * @throws IOException
+	 *             Thrown if the file can't be read, is too large or isn't
+	 *             valid UTF-8.
+	 */
+	public static ANTLRInputStream map(File file) throws IOException {
+		final ANTLRInputStream result;
+
+		try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + size + " bytes");
+			}
+			final MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, size);
+
+			// UTF-8 never decodes to more characters than there are bytes
+			final CharBuffer chars = CharBuffer.allocate((int)size);
+			final CharsetDecoder decoder = newDecoder();
+			CoderResult coderResult = decoder.decode(bytes, chars, true);
+			if(coderResult.isUnderflow()) {
+				coderResult = decoder.flush(chars);
+			}
+			if(coderResult.isError()) {
+				throw new IOException("Invalid UTF-8 at byte " + bytes.position());
+			}
+
+			result = new ANTLRInputStream(chars.array(), chars.position());
+			result.name = file.getPath();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Open a file for reading a character at a time, as the OakReader does.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @return A buffered UTF-8 Reader.
+	 * @throws FileNotFoundException
+	 *             Thrown if the file does not exist.
+	 */
+	public static Reader open(File file) throws FileNotFoundException {
+		return new BufferedReader(new InputStreamReader(new FileInputStream(file), newDecoder()));
+	}
+
+	private static CharsetDecoder newDecoder() {
+		return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+	}
+}
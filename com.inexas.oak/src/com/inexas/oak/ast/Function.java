@@ -24,4 +24,18 @@ public @interface Function {
 	 *         to the environment, false otherwise. Default is false.
 	 */
 	boolean dynamic() default false;
+
+	/**
+	 * @return The maximum number of results to remember, keyed on the
+	 *         argument values, or 0 not to cache the function. Only
+	 *         non-dynamic functions can be cached. Default is 0.
+	 * @see FunctionCache
+	 */
+	int cacheSize() default 0;
+
+	/**
+	 * @return The time in milliseconds a cached result remains valid or 0 if
+	 *         results don't expire. Default is 0.
+	 */
+	long cacheTtl() default 0;
 }
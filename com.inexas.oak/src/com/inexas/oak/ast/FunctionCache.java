@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 Processwide AG. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.ast;
+
+import java.util.*;
+
+/**
+ * A bounded memo cache for a non-dynamic library function: the value returned
+ * is remembered against the argument values so the method is only called once
+ * for each distinct set of arguments. The least recently used entry is evicted
+ * when the cache is full and, if a time-to-live is set, entries expire after
+ * that long.
+ *
+ * Configure the cache with the cacheSize and cacheTtl properties of the
+ * Function annotation.
+ *
+ * @see Function#cacheSize()
+ */
+public class FunctionCache {
+	static class Entry {
+		final Object value;
+		final long expires;
+
+		Entry(Object value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+	private final int size;
+	/** Time-to-live in nanoseconds, 0 for no expiry */
+	private final long ttl;
+	private final LinkedHashMap<List<Object>, Entry> map;
+	private long hits, misses, evictions;
+
+	/**
+	 * @param size
+	 *            The maximum number of entries to hold, must be greater than 0.
+	 * @param ttl
+	 *            The time-to-live of an entry in milliseconds or 0 if entries
+	 *            don't expire.
+	 */
+	FunctionCache(int size, long ttl) {
+		assert size > 0 && ttl >= 0;
+
+		this.size = size;
+		this.ttl = ttl * 1_000_000L;
+		map = new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 4071316958117744371L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+				final boolean result = size() > FunctionCache.this.size;
+				if(result) {
+					evictions++;
+				}
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Look up the value for a set of arguments.
+	 *
+	 * @param key
+	 *            The arguments.
+	 * @return The entry or null if there is no entry or it has expired.
+	 */
+	synchronized Entry get(List<Object> key) {
+		final Entry result;
+
+		final Entry entry = map.get(key);
+		if(entry == null) {
+			misses++;
+			result = null;
+		} else if(ttl > 0 && System.nanoTime() - entry.expires > 0) {
+			map.remove(key);
+			misses++;
+			evictions++;
+			result = null;
+		} else {
+			hits++;
+			result = entry;
+		}
+
+		return result;
+	}
+
+	synchronized void put(List<Object> key, Object value) {
+		map.put(key, new Entry(value, ttl > 0 ? System.nanoTime() + ttl : 0));
+	}
+
+	/**
+	 * @return The maximum number of entries the cache holds.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return The number of entries currently held.
+	 */
+	public synchronized int getCount() {
+		return map.size();
+	}
+
+	/**
+	 * @return The number of calls answered from the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return The number of calls that had to invoke the function.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return The number of entries removed because the cache was full or the
+	 *         entry had expired.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Remove all the entries and reset the counters.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		hits = misses = evictions = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized String toString() {
+		return "FunctionCache[" + map.size() + '/' + size
+				+ ", hits=" + hits
+				+ ", misses=" + misses
+				+ ", evictions=" + evictions + ']';
+	}
+}
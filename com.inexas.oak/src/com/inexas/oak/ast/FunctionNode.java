@@ -1,7 +1,8 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import org.antlr.v4.runtime.ParserRuleContext;
-import com.inexas.oak.DataType;
+import com.inexas.oak.*;
 import com.inexas.oak.advisory.Advisory;
 import com.inexas.oak.ast.LibraryRegistry.Function;
 import com.inexas.oak.ast.LibraryRegistry.LibraryException;
@@ -9,10 +10,10 @@ import com.inexas.tad.TadContext;
 
 public class FunctionNode extends ExpressionNode {
 	private final ExpressionNode argumentNodes[];
-	private Function function;
+	private final Function function;
 	private final int argumentCount;
-	private boolean isStatic;
-	private DataType type;
+	private final boolean isStatic;
+	private final DataType type;
 
 	public FunctionNode(ParserRuleContext context, String name, ExpressionNode argumentNodes[]) {
 		super(context);
@@ -21,16 +22,17 @@ public class FunctionNode extends ExpressionNode {
 		argumentCount = argumentNodes.length;
 
 		final LibraryRegistry functionRegister = TadContext.get(LibraryRegistry.class);
+		Function tmpFunction = null;
+		boolean tmpIsStatic = false;
 		try {
-			function = functionRegister.getFunction(name, argumentNodes);
-			type = function.returnType;
+			tmpFunction = functionRegister.getFunction(name, argumentNodes);
 
-			isStatic = function.isStatic;
-			if(isStatic) {
+			tmpIsStatic = tmpFunction.isStatic;
+			if(tmpIsStatic) {
 				for(int i = 0; i < argumentCount; i++) {
 					final ExpressionNode argument = argumentNodes[i];
 					if(!argument.isStatic()) {
-						isStatic = false;
+						tmpIsStatic = false;
 						break;
 					}
 				}
@@ -39,6 +41,9 @@ public class FunctionNode extends ExpressionNode {
 			final Advisory advisory = TadContext.get(Advisory.class);
 			advisory.error(context, e.getMessage());
 		}
+		function = tmpFunction;
+		isStatic = tmpIsStatic;
+		type = tmpFunction == null ? null : tmpFunction.returnType;
 	}
 
 	@Override
@@ -47,18 +52,46 @@ public class FunctionNode extends ExpressionNode {
 	}
 
 	@Override
-	public ConstantNode evaluate() {
+	boolean isError() {
+		return function == null;
+	}
+
+	@Override
+	public ConstantNode evaluate(Bindings bindings) {
 		/*
 		 * The arguments come in reverse order because they come off a stack so
 		 * we need to reverse them.
 		 */
 		final Object arguments[] = new Object[argumentCount];
 		for(int i = 0, j = argumentCount - 1; i < argumentCount; i++, j--) {
-			arguments[i] = argumentNodes[j].evaluate().getValue();
+			arguments[i] = argumentNodes[j].evaluate(bindings).getValue();
 		}
 		return function.invoke(null, arguments);
 	}
 
+	@Override
+	MethodHandle toMethodHandle() {
+		MethodHandle result;
+
+		// The library method with its argument and return conversions bound in
+		result = function.handle;
+
+		// ...the arguments are on the stack in reverse order...
+		final MethodType handleType = result.type();
+		for(int i = argumentCount - 1, j = 0; i >= 0; i--, j++) {
+			final MethodHandle argument = argumentNodes[j].toMethodHandle();
+			result = MethodHandles.collectArguments(
+					result,
+					i,
+					argument.asType(MethodType.methodType(handleType.parameterType(i), Bindings.class)));
+		}
+		result = ExpressionCompiler.shareBindings(result);
+
+		return result.asType(MethodType.methodType(
+				ExpressionCompiler.getCompiledClass(type),
+				Bindings.class));
+	}
+
 	@Override
 	public DataType getType() {
 		return type;
@@ -1,5 +1,6 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import java.math.*;
 import java.time.*;
@@ -44,6 +45,16 @@ public class LibraryRegistry implements Tad {
 		final DataType[] argumentTypes;
 		final String signature;
 		final String name;
+		/**
+		 * The method with arguments adapted to the compiled classes of the
+		 * argument types (see ExpressionCompiler) and the return value
+		 * adapted to the return type's Java class, e.g. (int, BigDecimal)Integer
+		 */
+		final MethodHandle handle;
+		/** The handle as (Object[])Object for the interpreter */
+		private final MethodHandle invoker;
+		/** Null unless the function is annotated with a cacheSize */
+		final FunctionCache cache;
 
 		/**
 		 * @param method
@@ -96,135 +107,94 @@ public class LibraryRegistry implements Tad {
 			final com.inexas.oak.ast.Function annotation = method.getAnnotationsByType(com.inexas.oak.ast.Function.class)[0];
 			isStatic = !annotation.dynamic();
 
-			// Signature...
-			signature = toSignature(returnType, name, argumentTypes);
-		}
-
-		ConstantNode invoke(ParserRuleContext context, Object[] arguments) {
-			final ConstantNode result;
-
-			try {
-				// Prepare the parameters...
-				final Class<?>[] parameterTypes = method.getParameterTypes();
-				final Object[] parameters = new Object[argumentCount];
-				for(int i = 0; i < argumentCount; i++) {
-					final Object argument = arguments[i];
-					switch(argumentTypes[i]) {
-					case bool:
-						parameters[i] = argument;
-						break;
-
-					case date:
-						parameters[i] = argument;
-						break;
-
-					case z:
-						final Class<?> clazz = parameterTypes[i];
-						if(clazz == BigDecimal.class) {
-							parameters[i] = new BigDecimal(((Integer)argument).intValue());
-						} else if(clazz == Float.class) {
-							parameters[i] = new Float(((Integer)argument).intValue());
-						} else {
-							parameters[i] = argument;
-						}
-						break;
-
-					case Z:
-					case F:
-					case f: {
-						parameters[i] = argument;
-						break;
-
-					}
-					case text:
-						parameters[i] = argument == null ? null : argument.toString();
-						break;
-
-					case cardinality:
-					case identifier:
-					case datetime:
-					case path:
-					case time:
-						// todo Implement me
-						throw new ImplementMeException();
-
-					case any:
-					default:
-						throw new UnexpectedException("invoke: ");
-					}
-				}
-
-				// Invoke the method
-				final Object returnValue = method.invoke(library, arguments);
-
-				// Process the return type...
-				switch(returnType) {
-				case bool:
-					result = new ConstantNode(context, (Boolean)returnValue);
-					break;
-
-				case datetime: {
-					result = new ConstantNode(context, (LocalDateTime)returnValue);
-					break;
-				}
-
-				case date: {
-					result = new ConstantNode(context, (LocalDate)returnValue);
-					break;
+			// Cache...
+			final int cacheSize = annotation.cacheSize();
+			final long cacheTtl = annotation.cacheTtl();
+			if(cacheSize < 0 || cacheTtl < 0) {
+				throw new InvalidMethodException(method, "Cache size and TTL cannot be negative");
+			}
+			if(cacheSize == 0) {
+				if(cacheTtl > 0) {
+					throw new InvalidMethodException(method, "Cache TTL set without a cache size");
 				}
-
-				case time: {
-					result = new ConstantNode(context, (LocalTime)returnValue);
-					break;
+				cache = null;
+			} else {
+				if(!isStatic) {
+					throw new InvalidMethodException(method, "Dynamic functions cannot be cached");
 				}
+				cache = new FunctionCache(cacheSize, cacheTtl);
+			}
 
-				case identifier:
-				case path:
-				case text:
-					result = new ConstantNode(context, (String)returnValue);
-					break;
-
-				case z: {
-					final Integer i = DataType.convert(returnValue, Integer.class);
-					result = new ConstantNode(context, i);
-					break;
-				}
+			// Signature...
+			signature = toSignature(returnType, name, argumentTypes);
 
-				case Z: {
-					final BigInteger bi = DataType.convert(returnValue, BigInteger.class);
-					result = new ConstantNode(context, bi);
-					break;
-				}
+			// Build the handles once here rather than converting on every call
+			final MethodHandle direct = toHandle(library, method, returnType, argumentTypes);
+			invoker = direct.asType(direct.type().generic()).asSpreader(Object[].class, argumentCount);
+			if(cache == null) {
+				handle = direct;
+			} else {
+				// Route compiled calls through the cache too
+				handle = ExpressionCompiler.findVirtual(
+						Function.class,
+						"call",
+						Object.class,
+						Object[].class).bindTo(this)
+						.asCollector(Object[].class, argumentCount)
+						.asType(direct.type());
+			}
+		}
 
-				case f: {
-					final Float f = DataType.convert(returnValue, Float.class);
-					result = new ConstantNode(context, f);
-					break;
-				}
+		/**
+		 * Call the function, consulting the cache if there is one.
+		 *
+		 * @param arguments
+		 *            The arguments in the order the function expects them.
+		 * @return The value returned by the function.
+		 */
+		Object call(Object[] arguments) throws Throwable {
+			final Object result;
 
-				case F: {
-					final BigDecimal b = DataType.convert(returnValue, BigDecimal.class);
-					result = new ConstantNode(context, b);
-					break;
+			if(cache == null) {
+				result = invoker.invokeExact(arguments);
+			} else {
+				final List<Object> key = Arrays.asList(arguments);
+				final FunctionCache.Entry entry = cache.get(key);
+				if(entry == null) {
+					result = invoker.invokeExact(arguments);
+					cache.put(key, result);
+				} else {
+					result = entry.value;
 				}
+			}
 
-				case cardinality: {
-					result = new ConstantNode(context, (Cardinality)returnValue);
-					break;
-				}
+			return result;
+		}
 
-				case any:
-				default:
-					throw new UnexpectedException("invoke: ");
-				}
+		/**
+		 * Invoke the function from the interpreter.
+		 *
+		 * @param context
+		 *            The position in the source for the resulting ConstantNode.
+		 * @param arguments
+		 *            The arguments in the order the function expects them, boxed
+		 *            as the DataType's Java class.
+		 * @return The result.
+		 */
+		ConstantNode invoke(ParserRuleContext context, Object[] arguments) {
+			final Object returnValue;
 
+			try {
+				returnValue = call(arguments);
 			} catch(final ClassCastException e) {
 				throw new RuntimeException("Probable data type mismatch", e);
-			} catch(final Exception e) {
-				throw new RuntimeException("Error invoking method", e);
+			} catch(final Error e) {
+				throw e;
+			} catch(final Throwable e) {
+				throw new OakRuntimeException("Error invoking method: " + e.getMessage(), e);
 			}
 
-			return result;
+			return new ConstantNode(context, returnType, returnValue);
 		}
 
 		@Override
@@ -270,6 +240,101 @@ public class LibraryRegistry implements Tad {
 		typeMap.put(Cardinality.class, DataType.cardinality);
 	}
 
+	private final static MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	/**
+	 * Build the handle for a library method. Conversions between the types
+	 * the expression uses and the types the method uses, e.g. BigInteger to
+	 * long, are bound in as argument and return value filters.
+	 */
+	private static MethodHandle toHandle(
+			Library library,
+			Method method,
+			DataType returnType,
+			DataType[] argumentTypes) throws InvalidMethodException {
+		MethodHandle result;
+
+		try {
+			result = lookup.unreflect(method);
+		} catch(final IllegalAccessException e) {
+			throw new InvalidMethodException(method, "Cannot access method: " + e.getMessage());
+		}
+		if(!Modifier.isStatic(method.getModifiers())) {
+			result = result.bindTo(library);
+		}
+
+		// Arguments...
+		final Class<?>[] parameterTypes = method.getParameterTypes();
+		final int count = parameterTypes.length;
+		final Class<?>[] argumentClasses = new Class<?>[count];
+		for(int i = 0; i < count; i++) {
+			final Class<?> parameterType = parameterTypes[i];
+			final Class<?> argumentClass = ExpressionCompiler.getCompiledClass(argumentTypes[i]);
+			argumentClasses[i] = argumentClass;
+			final MethodHandle filter;
+			if(argumentClass == BigInteger.class && parameterType != BigInteger.class) {
+				// long or Long
+				filter = findVirtual(BigInteger.class, "longValueExact", long.class);
+			} else if(argumentClass == BigDecimal.class && parameterType != BigDecimal.class) {
+				// double or Double
+				filter = findVirtual(BigDecimal.class, "doubleValue", double.class);
+			} else {
+				filter = null;
+			}
+			if(filter != null) {
+				result = MethodHandles.filterArguments(
+						result,
+						i,
+						filter.asType(MethodType.methodType(parameterType, argumentClass)));
+			}
+		}
+
+		// Return value...
+		final Class<?> returnClass = method.getReturnType();
+		final Class<?> javaClass = returnType.javaClass;
+		if(javaClass == BigInteger.class && returnClass != BigInteger.class) {
+			result = MethodHandles.filterReturnValue(
+					result.asType(result.type().changeReturnType(Long.class)),
+					findStatic(LibraryRegistry.class, "toBigInteger", BigInteger.class, Long.class));
+		} else if(javaClass == BigDecimal.class && returnClass != BigDecimal.class) {
+			result = MethodHandles.filterReturnValue(
+					result.asType(result.type().changeReturnType(Double.class)),
+					findStatic(LibraryRegistry.class, "toBigDecimal", BigDecimal.class, Double.class));
+		}
+
+		return result.asType(MethodType.methodType(javaClass, argumentClasses));
+	}
+
+	private static MethodHandle findVirtual(
+			Class<?> clazz,
+			String name,
+			Class<?> returnType,
+			Class<?>... parameterTypes) {
+		return ExpressionCompiler.findVirtual(clazz, name, returnType, parameterTypes);
+	}
+
+	private static MethodHandle findStatic(
+			Class<?> clazz,
+			String name,
+			Class<?> returnType,
+			Class<?>... parameterTypes) {
+		try {
+			return lookup.findStatic(clazz, name, MethodType.methodType(returnType, parameterTypes));
+		} catch(NoSuchMethodException | IllegalAccessException e) {
+			throw new UnexpectedException("findStatic: " + name);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	private static BigInteger toBigInteger(Long value) {
+		return value == null ? null : BigInteger.valueOf(value.longValue());
+	}
+
+	@SuppressWarnings("unused")
+	private static BigDecimal toBigDecimal(Double value) {
+		return value == null ? null : BigDecimal.valueOf(value.doubleValue());
+	}
+
 	final Map<String, Function[]> map = new HashMap<>();
 	private final List<Library> libraries = new ArrayList<>();
 
@@ -290,6 +355,11 @@ public class LibraryRegistry implements Tad {
 			parameterTypes[i] = parameters[i].getType();
 		}
 
+		return getFunction(name, parameterTypes);
+	}
+
+	private Function getFunction(String name, DataType[] parameterTypes) throws LibraryException {
+		final int parameterCount = parameterTypes.length;
 		final String key = toKey(name, parameterCount);
 		final Function[] functions = map.get(key);
 		if(functions != null) {
@@ -380,6 +450,22 @@ public class LibraryRegistry implements Tad {
 		return t.toString();
 	}
 
+	/**
+	 * Get the cache of a function that was annotated with a cacheSize, e.g. to
+	 * inspect its hit and miss counts.
+	 *
+	 * @param name
+	 *            The name of the function.
+	 * @param argumentTypes
+	 *            The types of the function's arguments.
+	 * @return The cache or null if the function is not cached.
+	 * @throws LibraryException
+	 *             Thrown if there is no such function.
+	 */
+	public FunctionCache getCache(String name, DataType... argumentTypes) throws LibraryException {
+		return getFunction(name, argumentTypes).cache;
+	}
+
 	public List<Library> getLlibraries() {
 		return libraries;
 	}
@@ -1,11 +1,10 @@
 package com.inexas.oak.ast;
 
-import java.math.BigInteger;
-import java.time.*;
+import java.lang.invoke.MethodHandle;
 import org.antlr.v4.runtime.ParserRuleContext;
 import com.inexas.oak.*;
+import com.inexas.oak.advisory.OakRuntimeException;
 import com.inexas.tad.TadContext;
-import com.inexas.util.Cardinality;
 
 /**
  * A SymbolNode is a representation of an Identifier but as used in an
@@ -15,13 +14,49 @@ import com.inexas.util.Cardinality;
  */
 public class SymbolNode extends ExpressionNode {
 	private final String identifier;
-	private ConstantNode value;
-	private DataType type;
+	private final ConstantNode value;
+	private final DataType type;
+	private final boolean isError;
 
+	/**
+	 * The identifier is resolved here, while the LibraryRegistry is attached,
+	 * so that the node is immutable once parsed and can be evaluated by any
+	 * number of threads at once. A symbol that can't be resolved, or resolves
+	 * to a value of an unsupported type, is reported to the Advisory and the
+	 * node evaluates to null and is marked as an error, see isError().
+	 *
+	 * @param context
+	 *            The position in the source.
+	 * @param identifier
+	 *            The symbol to resolve.
+	 */
 	public SymbolNode(ParserRuleContext context, String identifier) {
 		super(context);
 
 		this.identifier = identifier;
+
+		ConstantNode tmpValue = new ConstantNode(context);
+		boolean tmpIsError = false;
+		try {
+			final LibraryRegistry register = TadContext.get(LibraryRegistry.class);
+			final Object resolved = register.resolve(identifier);
+			if(resolved != null) {
+				final DataType resolvedType = DataType.getDataType(resolved.getClass());
+				if(resolvedType == null) {
+					error("Invalid type for symbol " + identifier + ": " + resolved.getClass().getName());
+					tmpIsError = true;
+				} else {
+					tmpValue = new ConstantNode(context, resolvedType, resolved);
+				}
+			}
+		} catch(final OakRuntimeException e) {
+			// Thrown by resolve() if no library knows the symbol
+			error(e.getMessage());
+			tmpIsError = true;
+		}
+		value = tmpValue;
+		type = value.getType();
+		isError = tmpIsError;
 	}
 
 	@Override
@@ -36,10 +71,6 @@ public class SymbolNode extends ExpressionNode {
 	 */
 	@Override
 	public DataType getType() {
-		if(type == null) {
-			doEvaluate();
-		}
-
 		return type;
 	}
 
@@ -55,58 +86,23 @@ public class SymbolNode extends ExpressionNode {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ConstantNode evaluate() {
-		if(type == null) {
-			doEvaluate();
-		}
-
+	public ConstantNode evaluate(Bindings bindings) {
 		return value;
 	}
 
-	public void doEvaluate() {
-		final LibraryRegistry register = TadContext.get(LibraryRegistry.class);
-		final Object resolved = register.resolve(identifier.toString());
-		type = DataType.getDataType(resolved.getClass());
-		switch(type) {
-		case f:
-			value = new ConstantNode(context, (Float)resolved);
-			break;
-		case F:
-			value = new ConstantNode(context, (BigInteger)resolved);
-			break;
-		case z:
-			value = new ConstantNode(context, (Integer)resolved);
-			break;
-		case Z:
-			value = new ConstantNode(context, (BigInteger)resolved);
-			break;
-		case bool:
-			value = new ConstantNode(context, (Boolean)resolved);
-			break;
-		case cardinality:
-			value = new ConstantNode(context, (Cardinality)resolved);
-			break;
-		case date:
-			value = new ConstantNode(context, (LocalDate)resolved);
-			break;
-		case datetime:
-			value = new ConstantNode(context, (LocalTime)resolved);
-			break;
-		case text:
-			value = new ConstantNode(context, (String)resolved);
-			break;
-		case time:
-			value = new ConstantNode(context, (BigInteger)resolved);
-			break;
-		case path:
-		case identifier:
-		case any:
-		default:
-			if(resolved == Library.UNRESOLVED) {
-				throw new RuntimeException("Cannot resolve identifier: " + identifier.toString());
-			}
-			throw new RuntimeException("evaluate: " + type.name());
-		}
+	@Override
+	boolean isEager() {
+		return true;
+	}
+
+	@Override
+	boolean isError() {
+		return isError;
+	}
+
+	@Override
+	MethodHandle toMethodHandle() {
+		return ExpressionCompiler.constant(type, value.getValue());
 	}
 
 }
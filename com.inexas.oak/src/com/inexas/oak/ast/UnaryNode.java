@@ -1,9 +1,10 @@
 package com.inexas.oak.ast;
 
+import java.lang.invoke.*;
 import java.math.*;
 import org.antlr.v4.runtime.ParserRuleContext;
 import com.inexas.exception.UnexpectedException;
-import com.inexas.oak.DataType;
+import com.inexas.oak.*;
 
 /**
  * Unary Minus '-', Logical Complement '~' or Not '!'.
@@ -52,10 +53,10 @@ public class UnaryNode extends ExpressionNode {
 	}
 
 	@Override
-	public ConstantNode evaluate() {
+	public ConstantNode evaluate(Bindings bindings) {
 		final ConstantNode result;
 
-		final ConstantNode valueConstant = operand.evaluate();
+		final ConstantNode valueConstant = operand.evaluate(bindings);
 		final Object value = valueConstant.getValue();
 		switch(operator) {
 		case OakLexer.Minus:
@@ -109,6 +110,134 @@ public class UnaryNode extends ExpressionNode {
 		return result;
 	}
 
+	@Override
+	public int evaluateInt(Bindings bindings) {
+		final int result;
+
+		if(type == DataType.z) {
+			final int value = operand.evaluateInt(bindings);
+			result = operator == OakLexer.Minus ? -value : ~value;
+		} else {
+			result = super.evaluateInt(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public float evaluateFloat(Bindings bindings) {
+		final float result;
+
+		if(type == DataType.z) {
+			result = evaluateInt(bindings);
+		} else if(type == DataType.f) {
+			result = -operand.evaluateFloat(bindings);
+		} else {
+			result = super.evaluateFloat(bindings);
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean evaluateBoolean(Bindings bindings) {
+		return !operand.evaluateBoolean(bindings);
+	}
+
+	@Override
+	public int[] evaluateInts(Columns columns) {
+		final int[] result;
+
+		if(type == DataType.z) {
+			final int[] values = operand.evaluateInts(columns);
+			final int size = columns.size();
+			result = new int[size];
+			if(operator == OakLexer.Minus) {
+				for(int i = 0; i < size; i++) {
+					result[i] = -values[i];
+				}
+			} else {
+				for(int i = 0; i < size; i++) {
+					result[i] = ~values[i];
+				}
+			}
+		} else {
+			result = super.evaluateInts(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public float[] evaluateFloats(Columns columns) {
+		final float[] result;
+
+		if(type == DataType.f) {
+			final float[] values = operand.evaluateFloats(columns);
+			final int size = columns.size();
+			result = new float[size];
+			for(int i = 0; i < size; i++) {
+				result[i] = -values[i];
+			}
+		} else {
+			result = super.evaluateFloats(columns);
+		}
+
+		return result;
+	}
+
+	@Override
+	public long[] evaluateBooleans(Columns columns) {
+		final long[] values = operand.evaluateBooleans(columns);
+		final int size = columns.size();
+		final long[] result = Columns.newBitmap(size);
+		final int length = result.length;
+		for(int i = 0; i < length; i++) {
+			result[i] = ~values[i];
+		}
+		Columns.trim(result, size);
+
+		return result;
+	}
+
+	@Override
+	boolean isEager() {
+		return (type == DataType.z || type == DataType.f || type == DataType.bool)
+				&& operand.isEager();
+	}
+
+	@Override
+	MethodHandle toMethodHandle() {
+		final MethodHandle result;
+
+		final String name;
+		switch(operator) {
+		case OakLexer.Minus:
+			name = "negate";
+			break;
+
+		case OakLexer.Comp:
+			name = "complement";
+			break;
+
+		case OakLexer.Not:
+			name = "not";
+			break;
+
+		default:
+			throw new RuntimeException("Invalid operator: " + AstToStringVisitor.operatorToString[operator]);
+		}
+
+		final MethodHandle operation = ExpressionCompiler.findOperator(name, type, type, 1);
+		if(operation == null) {
+			result = super.toMethodHandle();
+		} else {
+			result = MethodHandles.collectArguments(operation, 0, operand.toMethodHandle());
+		}
+
+		return result;
+	}
+
 	@Override
 	public DataType getType() {
 		return type;
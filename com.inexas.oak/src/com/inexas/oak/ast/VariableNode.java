@@ -0,0 +1,126 @@
+package com.inexas.oak.ast;
+
+import java.lang.invoke.MethodHandle;
+import org.antlr.v4.runtime.ParserRuleContext;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.OakRuntimeException;
+
+/**
+ * A VariableNode is a reference to one of the Variables declared for an
+ * Expression. Unlike a SymbolNode the value isn't known until the expression
+ * is evaluated, it is read from the Bindings slot that the variable was given
+ * when it was declared.
+ */
+public class VariableNode extends ExpressionNode {
+	private final String name;
+	private final int slot;
+	private final DataType type;
+
+	public VariableNode(ParserRuleContext context, String name, int slot, DataType type) {
+		super(context);
+
+		this.name = name;
+		this.slot = slot;
+		this.type = type;
+	}
+
+	/**
+	 * @return The name of the variable.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The variable's slot in the Bindings.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	@Override
+	public void accept(AstVisitor visitor) {
+		assert visitor.enterEveryNode(this);
+		visitor.visit(this);
+		assert visitor.exitEveryNode(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DataType getType() {
+		return type;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isStatic() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ConstantNode evaluate(Bindings bindings) {
+		return new ConstantNode(context, type, getValue(bindings));
+	}
+
+	@Override
+	public int evaluateInt(Bindings bindings) {
+		checkBindings(bindings);
+		return bindings.getInt(slot);
+	}
+
+	@Override
+	public float evaluateFloat(Bindings bindings) {
+		checkBindings(bindings);
+		return type == DataType.z ? bindings.getInt(slot) : bindings.getFloat(slot);
+	}
+
+	@Override
+	public boolean evaluateBoolean(Bindings bindings) {
+		checkBindings(bindings);
+		return bindings.getBoolean(slot);
+	}
+
+	@Override
+	Object getValue(Bindings bindings) {
+		checkBindings(bindings);
+		return bindings.get(slot);
+	}
+
+	@Override
+	public int[] evaluateInts(Columns columns) {
+		return columns.getInts(slot);
+	}
+
+	@Override
+	public float[] evaluateFloats(Columns columns) {
+		return type == DataType.z ? super.evaluateFloats(columns) : columns.getFloats(slot);
+	}
+
+	@Override
+	public long[] evaluateBooleans(Columns columns) {
+		return columns.getBooleans(slot);
+	}
+
+	@Override
+	boolean isEager() {
+		return true;
+	}
+
+	@Override
+	MethodHandle toMethodHandle() {
+		return ExpressionCompiler.variable(type, slot);
+	}
+
+	private void checkBindings(Bindings bindings) throws OakRuntimeException {
+		if(bindings == null) {
+			throw new OakRuntimeException("No bindings for variable: " + name);
+		}
+	}
+}
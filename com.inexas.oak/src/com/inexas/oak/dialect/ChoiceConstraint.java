@@ -1,5 +1,6 @@
 package com.inexas.oak.dialect;
 
+import java.util.*;
 import com.inexas.oak.Identifier;
 import com.inexas.oak.template.Constraint;
 import com.inexas.util.Text;
@@ -11,6 +12,9 @@ import com.inexas.util.Text;
 public class ChoiceConstraint extends Constraint {
 	public final static String KEY = "choice";
 
+	/** The options hashed so validation needn't scan them all */
+	private final Set<Object> options;
+
 	/**
 	 * This constructor is called when a Dialect is loaded from a rulebase and
 	 * the constraints are written as strings. The Property type is not known
@@ -21,16 +25,29 @@ public class ChoiceConstraint extends Constraint {
 	 */
 	public ChoiceConstraint(String... options) {
 		super(options);
-		if(options == null || options.length <= 0) {
-			error("Choice constraint must have at least two options");
-		}
+		this.options = toSet();
 	}
 
 	public ChoiceConstraint(Object... options) {
 		super(options);
-		if(options == null || options.length <= 0) {
+		this.options = toSet();
+	}
+
+	/**
+	 * @return The normalized values hashed for validation, empty if there
+	 *         weren't enough of them.
+	 */
+	private Set<Object> toSet() {
+		final Set<Object> result;
+
+		if(values == null || values.length < 2) {
 			error("Choice constraint must have at least two options");
+			result = Collections.emptySet();
+		} else {
+			result = new HashSet<>(Arrays.asList(values));
 		}
+
+		return result;
 	}
 
 	/**
@@ -38,16 +55,7 @@ public class ChoiceConstraint extends Constraint {
 	 */
 	@Override
 	public void validate(Object value) {
-		boolean found = false;
-
-		for(final Object option : values) {
-			if(option.equals(value)) {
-				found = true;
-				break;
-			}
-		}
-
-		if(!found) {
+		if(!options.contains(value)) {
 			final Text t = new Text(true);
 			t.append("Invalid value for choice constraint: '");
 			t.append(value == null ? "<null>" : value.toString());
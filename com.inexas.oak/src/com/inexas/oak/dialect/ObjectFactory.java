@@ -0,0 +1,21 @@
+package com.inexas.oak.dialect;
+
+/**
+ * Constructs the template object for an ObjectRule by calling the template
+ * class's constructor or factory method directly rather than by reflection.
+ * The dialect class written by Rulebase.write() sets one for each ObjectRule
+ * whose constructor is accessible.
+ *
+ * @see ObjectRule#setFactory(ObjectFactory)
+ */
+@FunctionalInterface
+public interface ObjectFactory {
+	/**
+	 * @param parameters
+	 *            The constructor parameters in relationship order.
+	 * @return The newly constructed template object.
+	 * @throws Exception
+	 *             Passed on from the constructor.
+	 */
+	Object construct(Object[] parameters) throws Exception;
+}
@@ -1,5 +1,6 @@
 package com.inexas.oak.dialect;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
 import java.math.*;
 import java.util.*;
@@ -18,8 +19,20 @@ public class ObjectRule extends Rule {
 	private Relationship[] relationships;
 	private int relationshipCount;
 	private Identifier[] childNames;
+	/**
+	 * Open addressing hash table of child names: each slot holds the ordinal
+	 * of a relationship plus one, zero if the slot is empty
+	 */
+	private int[] index;
+	private int indexShift;
 	private Method constructorMethod;
 	private Constructor<?> constructor;
+	/**
+	 * Calls the constructor or factory method through a MethodHandle resolved
+	 * once by setRelationships(), null if the handle could not be built
+	 */
+	private ObjectFactory handleFactory;
+	private ObjectFactory factory;
 	private Boolean hasChildren;
 
 	public ObjectRule(Identifier name, Class<?> templateClass, boolean isRoot) {
@@ -39,6 +52,45 @@ public class ObjectRule extends Rule {
 	public Object construct(Object[] parameters) throws OakException, OakRuntimeException {
 		final Object result;
 
+		final ObjectFactory objectFactory = factory == null ? handleFactory : factory;
+		if(objectFactory != null) {
+			try {
+				result = objectFactory.construct(parameters);
+			} catch(final OakException e) {
+				throw e;
+			} catch(final Exception e) {
+				throw new OakRuntimeException("Error constructing " + key + ": " + e.getMessage(), e);
+			}
+		} else {
+			result = constructReflectively(parameters);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Set a factory to construct the template objects with instead of calling
+	 * the constructor or factory method through a MethodHandle.
+	 *
+	 * @param factory
+	 *            The factory, it must call the same constructor or factory
+	 *            method that setRelationships() found.
+	 */
+	public void setFactory(ObjectFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return The factory set by setFactory() or null if objects are
+	 *         constructed through a MethodHandle.
+	 */
+	public ObjectFactory getFactory() {
+		return factory;
+	}
+
+	private Object constructReflectively(Object[] parameters) throws OakException, OakRuntimeException {
+		final Object result;
+
 		try {
 			if(constructor == null) {
 				result = constructorMethod.invoke(null, parameters);
@@ -50,9 +102,9 @@ public class ObjectRule extends Rule {
 			if(cause instanceof OakException) {
 				throw (OakException)cause;
 			}
-			throw new OakRuntimeException("Error constructing " + key + ": " + e.getMessage(), e);
+			throw new OakRuntimeException("Error constructing " + key + ": " + cause.getMessage(), cause);
 		} catch(final Exception e) {
-			throw new RuntimeException("Error constructing " + key + ": " + e.getMessage(), e);
+			throw new OakRuntimeException("Error constructing " + key + ": " + e.getMessage(), e);
 		}
 
 		return result;
@@ -66,13 +118,36 @@ public class ObjectRule extends Rule {
 	 * @return The Relationship or null if not found.
 	 */
 	public Relationship getRelationship(Identifier relationshipName) {
-		Relationship result = null;
-		for(int i = 0; i < relationshipCount; i++) {
-			if(childNames[i].equals(relationshipName)) {
-				result = relationships[i];
-				break;
+		final int ordinal = getOrdinal(relationshipName);
+		return ordinal < 0 ? null : relationships[ordinal];
+	}
+
+	/**
+	 * Return the ordinal of a Relationship given its name. Ordinals are dense,
+	 * 0..getRelationshipCount()-1, in the same order as getRelationships(),
+	 * getChildNames() and the parameters of the constructor or factory
+	 * method.
+	 *
+	 * @param relationshipName
+	 *            The name of the Relationship.
+	 * @return The ordinal or -1 if not found.
+	 */
+	public int getOrdinal(Identifier relationshipName) {
+		int result = -1;
+
+		if(index != null) {
+			final int mask = index.length - 1;
+			int slot = slot(relationshipName);
+			int entry;
+			while((entry = index[slot]) != 0) {
+				if(childNames[entry - 1].equals(relationshipName)) {
+					result = entry - 1;
+					break;
+				}
+				slot = (slot + 1) & mask;
 			}
 		}
+
 		return result;
 	}
 
@@ -225,6 +300,7 @@ public class ObjectRule extends Rule {
 				}
 				parameterTypes[i] = parameterType;
 			}
+			buildIndex();
 
 			/*
 			 * Check that there is a ctor that we can use, either a normal ctor
@@ -236,11 +312,13 @@ public class ObjectRule extends Rule {
 				final String methodName = "new" + templateClass.getSimpleName();
 				constructorMethod = templateClass.getDeclaredMethod(methodName, parameterTypes);
 				constructorMethod.setAccessible(true);
+				resolveHandle();
 			} catch(final NoSuchMethodException e) {
 				// No static method, look for normal constructor...
 				try {
 					constructor = templateClass.getConstructor(parameterTypes);
 					constructor.setAccessible(true);
+					resolveHandle();
 				} catch(final NoSuchMethodException e1) {
 					error(this, "Missing constructor or factory method. Implement...\n\t"
 							+ getConstructorName(templateClass, parameterTypes)
@@ -262,6 +340,156 @@ public class ObjectRule extends Rule {
 		}
 	}
 
+	/**
+	 * Set the relationships using a constructor or factory method signature
+	 * that was resolved earlier, e.g. when a RulebaseSnapshot was written. This
+	 * needs a single reflective lookup rather than a search. If the template
+	 * class has changed since and the signature is no longer there then the
+	 * search is done as usual.
+	 *
+	 * @param relationships
+	 *            The relationships in parameter order.
+	 * @param isFactoryMethod
+	 *            True if the signature is that of a static factory method.
+	 * @param parameterTypes
+	 *            The parameter types of the constructor or factory method.
+	 */
+	void setRelationships(Relationship[] relationships, boolean isFactoryMethod, Class<?>[] parameterTypes) {
+		try {
+			if(isFactoryMethod) {
+				final Method method = templateClass.getDeclaredMethod(
+						"new" + templateClass.getSimpleName(),
+						parameterTypes);
+				method.setAccessible(true);
+				constructorMethod = method;
+				resolveHandle();
+			} else {
+				final Constructor<?> found = templateClass.getConstructor(parameterTypes);
+				found.setAccessible(true);
+				constructor = found;
+				resolveHandle();
+			}
+
+			this.relationships = relationships;
+			relationshipCount = relationships.length;
+			childNames = new Identifier[relationshipCount];
+			for(int i = 0; i < relationshipCount; i++) {
+				childNames[i] = relationships[i].subjectKey;
+			}
+			buildIndex();
+		} catch(final NoSuchMethodException | SecurityException e) {
+			setRelationships(relationships);
+		}
+	}
+
+	/**
+	 * Build the index of childNames used by getOrdinal(). The table is at
+	 * least twice the number of children so probe sequences stay short.
+	 */
+	private void buildIndex() {
+		int size = 2;
+		indexShift = 31;
+		while(size < 2 * relationshipCount) {
+			size <<= 1;
+			indexShift--;
+		}
+
+		index = new int[size];
+		final int mask = size - 1;
+		for(int i = 0; i < relationshipCount; i++) {
+			final Identifier childName = childNames[i];
+			// Null if we've hit an error earlier, leave it out
+			if(childName != null) {
+				int slot = slot(childName);
+				while(index[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				index[slot] = i + 1;
+			}
+		}
+	}
+
+	private int slot(Identifier name) {
+		// Fibonacci hashing: spread the hash code and take the top bits
+		return (name.hashCode() * 0x9e3779b9) >>> indexShift;
+	}
+
+	/**
+	 * Resolve the constructor or factory method to a MethodHandle, adapt it to
+	 * take its parameters as an Object[] and spin an ObjectFactory around it
+	 * with the LambdaMetafactory. The work is done once here rather than each
+	 * time an object is constructed. If any step fails handleFactory is left
+	 * null and construct() falls back to reflection.
+	 */
+	private void resolveHandle() {
+		handleFactory = null;
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final MethodHandle direct = constructorMethod == null
+					? lookup.unreflectConstructor(constructor)
+					: lookup.unreflect(constructorMethod);
+			final MethodHandle spread = direct
+					.asType(direct.type().generic())
+					.asSpreader(Object[].class, direct.type().parameterCount());
+			final MethodType constructType = MethodType.methodType(Object.class, Object[].class);
+			final CallSite site = LambdaMetafactory.metafactory(
+					lookup,
+					"construct",
+					MethodType.methodType(ObjectFactory.class, MethodHandle.class),
+					constructType,
+					lookup.findStatic(
+							ObjectRule.class,
+							"invokeHandle",
+							MethodType.methodType(Object.class, MethodHandle.class, Object[].class)),
+					constructType);
+			handleFactory = (ObjectFactory)site.getTarget().invokeExact(spread);
+		} catch(final Error e) {
+			throw e;
+		} catch(final Throwable e) {
+			// Leave handleFactory null and construct by reflection
+		}
+	}
+
+	/**
+	 * The implementation of the factories spun by resolveHandle().
+	 *
+	 * @param handle
+	 *            The constructor or factory method as (Object[])Object.
+	 * @param parameters
+	 *            The constructor parameters in relationship order.
+	 * @return The newly constructed template object.
+	 * @throws Throwable
+	 *             Passed on from the constructor.
+	 */
+	private static Object invokeHandle(MethodHandle handle, Object[] parameters) throws Throwable {
+		return handle.invokeExact(parameters);
+	}
+
+	/**
+	 * @return True if objects are constructed with a static factory method
+	 *         rather than a constructor.
+	 */
+	boolean hasFactoryMethod() {
+		return constructorMethod != null;
+	}
+
+	/**
+	 * @return The parameter types of the constructor or factory method or
+	 *         null if neither was found.
+	 */
+	Class<?>[] getConstructorParameterTypes() {
+		final Executable executable = getConstructorOrFactoryMethod();
+		return executable == null ? null : executable.getParameterTypes();
+	}
+
+	/**
+	 * @return The constructor or factory method found by setRelationships()
+	 *         or null if neither was found.
+	 */
+	Executable getConstructorOrFactoryMethod() {
+		return constructorMethod != null ? constructorMethod : constructor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -6,28 +6,28 @@ import com.inexas.oak.template.Constraint;
 import com.inexas.util.Text;
 
 /**
- * A choice constraint is given a list of choices in the values array. The value
- * must be one of those choices.
+ * A regex constraint is given a list of regular expressions in the values
+ * array. The value must match one of those expressions.
  */
 public class RegexConstraint extends Constraint {
 	public final static String KEY = "regex";
 
+	/**
+	 * Finds constructs that can't be combined into an alternation: back
+	 * references would be renumbered, an unterminated \Q would quote the rest
+	 * of the alternation and a comment in (?x) mode would comment it out
+	 */
+	private final static Pattern NOT_COMBINABLE = Pattern.compile("\\\\(?:[1-9]|k<|Q)|\\(\\?[a-zA-Z-]*x");
+
+	/**
+	 * The regular expressions compiled once: a single alternation of them
+	 * all if they can be combined, otherwise one per expression.
+	 */
+	private final Pattern[] patterns;
+
 	public RegexConstraint(String... regexs) {
 		super(regexs);
-		if(values.length == 0) {
-			error("Regular expression (regex) Constraints need at least one regular expression");
-		} else {
-			for(final Object value : values) {
-				try {
-					final String string = (String)value;
-					Pattern.compile(string);
-				} catch(final PatternSyntaxException e) {
-					error("Error compiling regular expression: " + value);
-				} catch(final ClassCastException e) {
-					error("Invalid type for regular expression: " + value);
-				}
-			}
-		}
+		patterns = compile();
 	}
 
 	/**
@@ -36,6 +36,7 @@ public class RegexConstraint extends Constraint {
 	 */
 	public RegexConstraint(Object... values) {
 		super(values);
+		patterns = compile();
 	}
 
 	/**
@@ -101,13 +102,13 @@ public class RegexConstraint extends Constraint {
 	public void validate(Object value) {
 		boolean matched = false;
 
-		final String valueAsString = (String)value;
-		for(final Object object : values) {
-			final Pattern pattern = Pattern.compile((String)object);
-			final Matcher matcher = pattern.matcher(valueAsString);
-			if(matcher.matches()) {
-				matched = true;
-				break;
+		if(value != null) {
+			final String valueAsString = (String)value;
+			for(final Pattern pattern : patterns) {
+				if(pattern.matcher(valueAsString).matches()) {
+					matched = true;
+					break;
+				}
 			}
 		}
 
@@ -121,4 +122,62 @@ public class RegexConstraint extends Constraint {
 		}
 	}
 
+	/**
+	 * Check and compile the regular expressions. Several are combined into
+	 * one alternation so a value is matched in one pass rather than once per
+	 * expression, unless one of them uses a construct that can't be combined.
+	 *
+	 * @return The compiled patterns, empty if there are errors.
+	 */
+	private Pattern[] compile() {
+		Pattern[] result = new Pattern[0];
+
+		if(values.length == 0) {
+			error("Regular expression (regex) Constraints need at least one regular expression");
+		} else {
+			final Pattern[] compiled = new Pattern[values.length];
+			boolean valid = true;
+			boolean combinable = true;
+			for(int i = 0; i < values.length; i++) {
+				final Object value = values[i];
+				try {
+					final String string = (String)value;
+					compiled[i] = Pattern.compile(string);
+					if(NOT_COMBINABLE.matcher(string).find()) {
+						combinable = false;
+					}
+				} catch(final PatternSyntaxException e) {
+					error("Error compiling regular expression: " + value);
+					valid = false;
+				} catch(final ClassCastException | NullPointerException e) {
+					error("Invalid type for regular expression: " + value);
+					valid = false;
+				}
+			}
+
+			if(valid) {
+				if(compiled.length == 1 || !combinable) {
+					result = compiled;
+				} else {
+					final Text t = new Text();
+					for(final Pattern pattern : compiled) {
+						if(t.length() > 0) {
+							t.append('|');
+						}
+						t.append("(?:");
+						t.append(pattern.pattern());
+						t.append(')');
+					}
+					try {
+						result = new Pattern[] { Pattern.compile(t.toString()) };
+					} catch(final PatternSyntaxException e) {
+						// Something NOT_COMBINABLE doesn't know about, keep them apart
+						result = compiled;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
 }
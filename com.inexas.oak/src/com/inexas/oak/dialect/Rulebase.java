@@ -11,6 +11,7 @@
 package com.inexas.oak.dialect;
 
 import java.io.*;
+import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.Entry;
 import com.inexas.oak.Identifier;
@@ -71,6 +72,10 @@ public class Rulebase {
 		 * in Eclipse, right click on the directory containing the generated
 		 * files Properties > Java Compiler > Ignore optional compile problems
 		 */
+		if(hasGenericParameters()) {
+			// The factories cast to generic collection types
+			t.writeline("@SuppressWarnings(\"unchecked\")");
+		}
 		t.append("public class ");
 		t.append(className);
 		t.append(" {");
@@ -250,6 +255,12 @@ public class Rulebase {
 			t.newline();
 		}
 
+		// Factories...
+
+		for(final ObjectRule object : rules) {
+			writeFactory(t, object);
+		}
+
 		// setRules(key, clazz, ...);
 		t.indent();
 		t.append("setRules(");
@@ -422,6 +433,96 @@ public class Rulebase {
 		}
 	}
 
+	/**
+	 * Write a factory that calls the template class's constructor or factory
+	 * method directly so the object tree can be built without reflection, e.g.
+	 *
+	 * <pre>
+	 * _Email.setFactory(p -&gt; new com.example.Email(
+	 * 		(java.lang.String)p[0],
+	 * 		(java.lang.Boolean)p[1]));
+	 * </pre>
+	 */
+	private void writeFactory(Text t, ObjectRule object) {
+		final Executable executable = object.getConstructorOrFactoryMethod();
+		final Class<?> templateClass = object.getTemplateClass();
+		final String templateClassName = templateClass.getName().replace('$', '.');
+		final String objectName = "_" + object.key;
+
+		if(executable == null || !isAccessible(executable)) {
+			t.indent();
+			t.append("// ");
+			t.append(objectName);
+			t.append(" is constructed by reflection, the constructor is not public");
+			t.newline();
+		} else {
+			t.indent();
+			t.append(objectName);
+			t.append(".setFactory(p -> ");
+			if(executable instanceof Method) {
+				t.append(templateClassName);
+				t.append(".new");
+				t.append(templateClass.getSimpleName());
+			} else {
+				t.append("new ");
+				t.append(templateClassName);
+			}
+			t.append('(');
+
+			t.indentMore();
+			t.indentMore();
+			final Type[] parameterTypes = executable.getGenericParameterTypes();
+			final int count = parameterTypes.length;
+			for(int i = 0; i < count; i++) {
+				t.newline();
+				t.indent();
+				t.append('(');
+				t.append(parameterTypes[i].getTypeName().replace('$', '.'));
+				t.append(")p[");
+				t.append(i);
+				t.append(']');
+				if(i < count - 1) {
+					t.append(',');
+				}
+			}
+			t.append("));");
+			t.newline();
+			t.indentLess();
+			t.indentLess();
+		}
+		t.newline();
+	}
+
+	private boolean isAccessible(Executable executable) {
+		boolean result = Modifier.isPublic(executable.getModifiers());
+
+		Class<?> clazz = executable.getDeclaringClass();
+		while(result && clazz != null) {
+			result = Modifier.isPublic(clazz.getModifiers());
+			clazz = clazz.getEnclosingClass();
+		}
+
+		return result;
+	}
+
+	private boolean hasGenericParameters() {
+		boolean result = false;
+
+		for(final ObjectRule object : rules) {
+			final Executable executable = object.getConstructorOrFactoryMethod();
+			if(executable != null && isAccessible(executable)) {
+				for(final Type type : executable.getGenericParameterTypes()) {
+					if(type instanceof ParameterizedType) {
+						result = true;
+						break;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
 	private String getParameterList(ObjectRule rule) {
 		final String result;
 
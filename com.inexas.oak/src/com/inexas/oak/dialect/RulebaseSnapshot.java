@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.dialect;
+
+import java.io.*;
+import java.math.*;
+import java.time.*;
+import java.util.*;
+import com.inexas.oak.*;
+import com.inexas.oak.template.Constraint;
+import com.inexas.util.Cardinality;
+
+/**
+ * A compact binary form of a compiled Rulebase. Loading a snapshot needs no
+ * parsing of a dialect file and, as the constructor or factory method of each
+ * ObjectRule was resolved when the snapshot was written, only one reflective
+ * lookup per ObjectRule rather than a search.
+ *
+ * The format is:
+ *
+ * <pre>
+ * "OAKR" version:int name:UTF
+ * ruleCount:int { key:UTF templateClass:UTF isRoot:boolean }
+ * propertyCount:int { key:UTF dataType:UTF constraintCount:int
+ *     { type:UTF valueCount:int { value } } }
+ * for each rule: relationshipCount:int
+ *     { subject:int cardinality:UTF collection:UTF }
+ *     isFactoryMethod:boolean parameterCount:int { parameterType:int }
+ * </pre>
+ *
+ * A relationship's subject is the index of an ObjectRule if it is greater than
+ * or equal to zero, otherwise the index of a PropertyRule, -1 being the first.
+ * Parameter types are indexed the same way: an ObjectRule's template class or,
+ * if negative, one of the types a property or collection parameter may have.
+ * Constraint values are written as a tag byte followed by the value.
+ */
+public class RulebaseSnapshot {
+	private final static int MAGIC = 0x4f414b52; // "OAKR"
+	private final static int VERSION = 1;
+
+	/** The types of parameter not given by a template class */
+	private final static Class<?>[] PARAMETER_TYPES = {
+			Identifier.class,
+			Path.class,
+			String.class,
+			Long.class,
+			BigInteger.class,
+			Float.class,
+			BigDecimal.class,
+			Date.class,
+			Boolean.class,
+			Cardinality.class,
+			Object.class,
+			List.class,
+			Map.class,
+			Set.class
+	};
+
+	// The tags written before each constraint value...
+	final static byte TAG_NULL = 0;
+	final static byte TAG_STRING = 1;
+	final static byte TAG_INTEGER = 2;
+	final static byte TAG_LONG = 3;
+	final static byte TAG_BIG_INTEGER = 4;
+	final static byte TAG_FLOAT = 5;
+	final static byte TAG_DOUBLE = 6;
+	final static byte TAG_BIG_DECIMAL = 7;
+	final static byte TAG_BOOLEAN = 8;
+	final static byte TAG_IDENTIFIER = 9;
+	final static byte TAG_PATH = 10;
+	final static byte TAG_CARDINALITY = 11;
+	final static byte TAG_DATE = 12;
+	final static byte TAG_TIME = 13;
+	final static byte TAG_DATETIME = 14;
+
+	private RulebaseSnapshot() {
+		// Static methods only
+	}
+
+	/**
+	 * Write a Rulebase as a snapshot.
+	 *
+	 * @param rulebase
+	 *            The Rulebase to write, it must have been built without
+	 *            errors.
+	 * @param outputStream
+	 *            Where to write it.
+	 * @throws IOException
+	 *             Thrown on write errors or if the Rulebase contains something
+	 *             that can't be written.
+	 */
+	public static void write(Rulebase rulebase, OutputStream outputStream) throws IOException {
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+		final ObjectRule[] rules = rulebase.rules;
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(rulebase.name.toString());
+
+		// Objects...
+		final Map<Rule, Integer> objectIndex = new IdentityHashMap<>();
+		out.writeInt(rules.length);
+		for(final ObjectRule rule : rules) {
+			objectIndex.put(rule, new Integer(objectIndex.size()));
+			out.writeUTF(rule.key.toString());
+			out.writeUTF(rule.getTemplateClass().getName());
+			out.writeBoolean(rule.isRoot());
+		}
+
+		// Properties, which may be shared between objects...
+		final Map<Rule, Integer> propertyIndex = new IdentityHashMap<>();
+		final List<PropertyRule> properties = new ArrayList<>();
+		for(final ObjectRule rule : rules) {
+			for(final Relationship relationship : relationships(rule)) {
+				if(!relationship.subjectIsObject && !propertyIndex.containsKey(relationship.subject)) {
+					propertyIndex.put(relationship.subject, new Integer(-1 - properties.size()));
+					properties.add((PropertyRule)relationship.subject);
+				}
+			}
+		}
+		out.writeInt(properties.size());
+		for(final PropertyRule property : properties) {
+			out.writeUTF(property.key.toString());
+			out.writeUTF(property.dataType.name());
+			final Constraint[] constraints = property.constraints;
+			if(constraints == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(constraints.length);
+				for(final Constraint constraint : constraints) {
+					out.writeUTF(constraint.getKey().toString());
+					out.writeInt(constraint.values.length);
+					for(final Object value : constraint.values) {
+						writeValue(out, value);
+					}
+				}
+			}
+		}
+
+		// Relationships and constructors...
+		for(final ObjectRule rule : rules) {
+			final Relationship[] relationships = relationships(rule);
+			out.writeInt(relationships.length);
+			for(final Relationship relationship : relationships) {
+				final Integer index = relationship.subjectIsObject
+						? objectIndex.get(relationship.subject)
+						: propertyIndex.get(relationship.subject);
+				if(index == null) {
+					throw new IOException("Relationship to rule not in Rulebase: " + relationship.subjectKey);
+				}
+				out.writeInt(index.intValue());
+				out.writeUTF(relationship.cardinality.text);
+				out.writeUTF(relationship.collection.name());
+			}
+
+			final Class<?>[] parameterTypes = rule.getConstructorParameterTypes();
+			if(parameterTypes == null) {
+				throw new IOException("No constructor resolved for: " + rule.key);
+			}
+			out.writeBoolean(rule.hasFactoryMethod());
+			out.writeInt(parameterTypes.length);
+			for(final Class<?> parameterType : parameterTypes) {
+				out.writeInt(toIndex(parameterType, rules));
+			}
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Read a Rulebase from a snapshot. Any errors found rebuilding the rules,
+	 * e.g. if a template class has changed, are reported to the Advisory in
+	 * the context as they would be when compiling a dialect.
+	 *
+	 * @param inputStream
+	 *            The snapshot.
+	 * @return The Rulebase.
+	 * @throws IOException
+	 *             Thrown on read errors, if the input is not a snapshot or a
+	 *             class it names can't be found.
+	 */
+	public static Rulebase read(InputStream inputStream) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+
+		if(in.readInt() != MAGIC) {
+			throw new IOException("Not a Rulebase snapshot");
+		}
+		final int version = in.readInt();
+		if(version != VERSION) {
+			throw new IOException("Unsupported Rulebase snapshot version: " + version);
+		}
+		final Identifier name = new Identifier(in.readUTF());
+
+		final ObjectRule[] rules = new ObjectRule[in.readInt()];
+		for(int i = 0; i < rules.length; i++) {
+			final Identifier key = new Identifier(in.readUTF());
+			final Class<?> templateClass = toClass(in.readUTF());
+			rules[i] = new ObjectRule(key, templateClass, in.readBoolean());
+		}
+
+		final PropertyRule[] properties = new PropertyRule[in.readInt()];
+		for(int i = 0; i < properties.length; i++) {
+			final Identifier key = new Identifier(in.readUTF());
+			final DataType dataType = DataType.valueOf(in.readUTF());
+			final Constraint[] constraints = new Constraint[in.readInt()];
+			for(int j = 0; j < constraints.length; j++) {
+				final Identifier type = new Identifier(in.readUTF());
+				final Object[] values = new Object[in.readInt()];
+				for(int k = 0; k < values.length; k++) {
+					values[k] = readValue(in);
+				}
+				constraints[j] = Constraint.newConstraint(type, values);
+			}
+			properties[i] = new PropertyRule(key, dataType, constraints);
+		}
+
+		for(final ObjectRule rule : rules) {
+			final Relationship[] relationships = new Relationship[in.readInt()];
+			for(int i = 0; i < relationships.length; i++) {
+				final int index = in.readInt();
+				final Rule subject = index >= 0 ? rules[index] : properties[-1 - index];
+				final Cardinality cardinality = Cardinality.newInstance(in.readUTF());
+				final CollectionType collection = CollectionType.valueOf(in.readUTF());
+				relationships[i] = new Relationship(subject, cardinality, collection);
+			}
+
+			final boolean isFactoryMethod = in.readBoolean();
+			final Class<?>[] parameterTypes = new Class<?>[in.readInt()];
+			for(int i = 0; i < parameterTypes.length; i++) {
+				final int index = in.readInt();
+				parameterTypes[i] = index >= 0 ? rules[index].getTemplateClass() : PARAMETER_TYPES[-1 - index];
+			}
+			rule.setRelationships(relationships, isFactoryMethod, parameterTypes);
+		}
+
+		return new Rulebase(name, rules);
+	}
+
+	private static Relationship[] relationships(ObjectRule rule) throws IOException {
+		final Relationship[] result = rule.getRelationships();
+		if(result == null) {
+			throw new IOException("Rule has no relationships: " + rule.key);
+		}
+		return result;
+	}
+
+	private static int toIndex(Class<?> parameterType, ObjectRule[] rules) throws IOException {
+		for(int i = 0; i < rules.length; i++) {
+			if(rules[i].getTemplateClass() == parameterType) {
+				return i;
+			}
+		}
+		for(int i = 0; i < PARAMETER_TYPES.length; i++) {
+			if(PARAMETER_TYPES[i] == parameterType) {
+				return -1 - i;
+			}
+		}
+		throw new IOException("Can't write parameter type: " + parameterType.getName());
+	}
+
+	private static Class<?> toClass(String className) throws IOException {
+		try {
+			return Class.forName(className);
+		} catch(final ClassNotFoundException e) {
+			throw new IOException("Class not found: " + className, e);
+		}
+	}
+
+	/**
+	 * @return The tag for a constraint value or -1 if it can't be written.
+	 */
+	private static byte toTag(Object value) {
+		final byte result;
+
+		final Class<?> clazz = value == null ? null : value.getClass();
+		if(clazz == null) {
+			result = TAG_NULL;
+		} else if(clazz == String.class) {
+			result = TAG_STRING;
+		} else if(clazz == Integer.class) {
+			result = TAG_INTEGER;
+		} else if(clazz == Long.class) {
+			result = TAG_LONG;
+		} else if(clazz == BigInteger.class) {
+			result = TAG_BIG_INTEGER;
+		} else if(clazz == Float.class) {
+			result = TAG_FLOAT;
+		} else if(clazz == Double.class) {
+			result = TAG_DOUBLE;
+		} else if(clazz == BigDecimal.class) {
+			result = TAG_BIG_DECIMAL;
+		} else if(clazz == Boolean.class) {
+			result = TAG_BOOLEAN;
+		} else if(clazz == Identifier.class) {
+			result = TAG_IDENTIFIER;
+		} else if(clazz == Path.class) {
+			result = TAG_PATH;
+		} else if(clazz == Cardinality.class) {
+			result = TAG_CARDINALITY;
+		} else if(clazz == LocalDate.class) {
+			result = TAG_DATE;
+		} else if(clazz == LocalTime.class) {
+			result = TAG_TIME;
+		} else if(clazz == LocalDateTime.class) {
+			result = TAG_DATETIME;
+		} else {
+			result = -1;
+		}
+
+		return result;
+	}
+
+	static void writeValue(DataOutputStream out, Object value) throws IOException {
+		final byte tag = toTag(value);
+		if(tag < 0) {
+			throw new IOException("Can't write constraint value of type: " + value.getClass().getName());
+		}
+
+		out.writeByte(tag);
+		switch(tag) {
+		case TAG_NULL:
+			break;
+		case TAG_INTEGER:
+			out.writeInt(((Integer)value).intValue());
+			break;
+		case TAG_LONG:
+			out.writeLong(((Long)value).longValue());
+			break;
+		case TAG_FLOAT:
+			out.writeFloat(((Float)value).floatValue());
+			break;
+		case TAG_DOUBLE:
+			out.writeDouble(((Double)value).doubleValue());
+			break;
+		case TAG_BOOLEAN:
+			out.writeBoolean(((Boolean)value).booleanValue());
+			break;
+		default:
+			// Everything else round trips through its String form
+			out.writeUTF(value.toString());
+			break;
+		}
+	}
+
+	static Object readValue(DataInputStream in) throws IOException {
+		final Object result;
+
+		final byte tag = in.readByte();
+		switch(tag) {
+		case TAG_NULL:
+			result = null;
+			break;
+		case TAG_STRING:
+			result = in.readUTF();
+			break;
+		case TAG_INTEGER:
+			result = new Integer(in.readInt());
+			break;
+		case TAG_LONG:
+			result = new Long(in.readLong());
+			break;
+		case TAG_BIG_INTEGER:
+			result = new BigInteger(in.readUTF());
+			break;
+		case TAG_FLOAT:
+			result = new Float(in.readFloat());
+			break;
+		case TAG_DOUBLE:
+			result = new Double(in.readDouble());
+			break;
+		case TAG_BIG_DECIMAL:
+			result = new BigDecimal(in.readUTF());
+			break;
+		case TAG_BOOLEAN:
+			result = Boolean.valueOf(in.readBoolean());
+			break;
+		case TAG_IDENTIFIER:
+			result = new Identifier(in.readUTF());
+			break;
+		case TAG_PATH:
+			result = Path.parse(in.readUTF());
+			break;
+		case TAG_CARDINALITY:
+			result = Cardinality.newInstance(in.readUTF());
+			break;
+		case TAG_DATE:
+			result = LocalDate.parse(in.readUTF());
+			break;
+		case TAG_TIME:
+			result = LocalTime.parse(in.readUTF());
+			break;
+		case TAG_DATETIME:
+			result = LocalDateTime.parse(in.readUTF());
+			break;
+		default:
+			throw new IOException("Invalid constraint value tag: " + tag);
+		}
+
+		return result;
+	}
+}
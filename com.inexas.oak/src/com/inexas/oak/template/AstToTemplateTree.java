@@ -34,19 +34,25 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		/** The Rule for this state */
 		final Relationship relation;
 
+		/** True if this is an object in an array of objects */
+		final boolean inArray;
+
 		/** Set true if we have encountered an error while parsing this block */
 		boolean seenError;
 
 		/**
-		 * The contents of this state: a Map<key, value> where value is either a
-		 * node or a list, map or set of nodes depending on the rule for that
-		 * key.
+		 * The contents of this state indexed by the ordinal of each child's
+		 * Relationship, see ObjectRule.getOrdinal(). A value is either a node
+		 * or a list, map or set of nodes depending on the rule for that child,
+		 * NULL if a singleton child is present but null. An array or property
+		 * collects its own values in a single slot. Allocated by the first
+		 * add.
 		 */
-		final Map<Identifier, Object> contents = new LinkedHashMap<>();
+		Object[] contents;
 
-		State(PairNode node) {
+		State(Locus node, Identifier name) {
 
-			context = node.getName();
+			context = name;
 			if(state == null) {
 				// Root Object
 				relation = rootMap.get(context);
@@ -70,24 +76,27 @@ public class AstToTemplateTree extends AstVisitor.Base {
 			previousInChain = state;
 			state = this;
 			seenError = relation == null;
+			inArray = false;
 		}
 
-		State(Node node) {
-			assert !(node instanceof PairNode);
-
+		/**
+		 * An object in an array of objects: the name and relationship are
+		 * those of the array.
+		 */
+		State() {
 			context = state.context;
 			relation = state.relation;
 			previousInChain = state;
 			state = this;
+			inArray = true;
 		}
 
 		@Override
 		public String toString() {
-			return "State:" + context + ' ' + relation + ' ' + contents.keySet()
-					+ (seenError ? " ERROR" : "");
+			return "State:" + context + ' ' + relation + (seenError ? " ERROR" : "");
 		}
 
-		Relationship getChildRelation(Node node, Identifier name) {
+		Relationship getChildRelation(Locus node, Identifier name) {
 			final Relationship result;
 
 			if(relation.subjectIsObject) {
@@ -105,76 +114,112 @@ public class AstToTemplateTree extends AstVisitor.Base {
 			return result;
 		}
 
-		void add(Node node, Relationship childRelation, Object child) {
+		/**
+		 * Add a child of the object this State is collecting.
+		 */
+		void add(Locus node, Relationship childRelation, Object child) {
+			if(!seenError) {
+				final ObjectRule object = (ObjectRule)relation.subject;
+				if(contents == null) {
+					contents = new Object[object.getRelationshipCount()];
+				}
+				final int ordinal = object.getOrdinal(childRelation.subjectKey);
+				assert ordinal >= 0 : "Not a child: " + childRelation.subjectKey;
+				put(node, childRelation, ordinal, child);
+			}
+		}
 
+		/**
+		 * Add one of the values of the array or property this State is
+		 * collecting.
+		 */
+		void addValue(Locus node, Object value) {
 			if(!seenError) {
-				final Identifier name = childRelation.subjectKey;
-				switch(childRelation.collection) {
-				case list:
-					@SuppressWarnings("unchecked")
-					List<Object> list = (List<Object>)contents.get(name);
-					if(list == null) {
-						list = new ArrayList<>();
-						contents.put(name, list);
-					}
-					list.add(child);
-					break;
+				if(contents == null) {
+					contents = new Object[1];
+				}
+				put(node, relation, 0, value);
+			}
+		}
 
-				case map:
-					@SuppressWarnings("unchecked")
-					Map<Identifier, Object> map = (Map<Identifier, Object>)contents.get(name);
-					if(map == null) {
-						map = new HashMap<>();
-						contents.put(name, map);
-					}
-					try {
-						final Identifier key = ((Keyed)child).getKey();
-						if(map.put(key, child) != null) {
-							error(node, "Key already defined in this map: " + key);
-						}
-					} catch(final ClassCastException e) {
-						// todo Implement me
-						throw new ImplementMeException(child.getClass().getName()
-								+ " must implement Keyed if it is to be used in a map");
-					}
-					break;
+		/**
+		 * @return The value(s) collected by addValue() or null if none.
+		 */
+		Object getValue() {
+			return contents == null || contents[0] == NULL ? null : contents[0];
+		}
 
-				case set:
-					@SuppressWarnings("unchecked")
-					Set<Object> set = (Set<Object>)contents.get(name);
-					if(set == null) {
-						set = new HashSet<>();
-						contents.put(name, set);
-					}
-					if(!set.add(child)) {
-						error(node, "Duplicate value");
-					}
-					break;
+		private void put(Locus node, Relationship relationship, int slot, Object child) {
+			switch(relationship.collection) {
+			case list:
+				@SuppressWarnings("unchecked")
+				List<Object> list = (List<Object>)contents[slot];
+				if(list == null) {
+					list = new ArrayList<>();
+					contents[slot] = list;
+				}
+				list.add(child);
+				break;
 
-				case singleton:
-					if(contents.containsKey(name)) {
-						error(node, "Redefinition of value for: " + name);
-					} else {
-						contents.put(name, child);
+			case map:
+				@SuppressWarnings("unchecked")
+				Map<Identifier, Object> map = (Map<Identifier, Object>)contents[slot];
+				if(map == null) {
+					map = new HashMap<>();
+					contents[slot] = map;
+				}
+				try {
+					final Identifier key = ((Keyed)child).getKey();
+					if(map.put(key, child) != null) {
+						error(node, "Key already defined in this map: " + key);
 					}
-					break;
+				} catch(final ClassCastException e) {
+					// todo Implement me
+					throw new ImplementMeException(child.getClass().getName()
+							+ " must implement Keyed if it is to be used in a map");
+				}
+				break;
+
+			case set:
+				@SuppressWarnings("unchecked")
+				Set<Object> set = (Set<Object>)contents[slot];
+				if(set == null) {
+					set = new HashSet<>();
+					contents[slot] = set;
 				}
+				if(!set.add(child)) {
+					error(node, "Duplicate value");
+				}
+				break;
+
+			case singleton:
+				if(contents[slot] != null) {
+					error(node, "Redefinition of value for: " + relationship.subjectKey);
+				} else {
+					contents[slot] = child == null ? NULL : child;
+				}
+				break;
 			}
 		}
 
-		Object toObject(Node node) {
+		Object toObject(Locus node) {
 			Object result;
 
 			if(relation == null) {
 				result = null;
 			} else {
-				// Retrieve the parameters...
+				// The contents are in parameter order, use them as they are...
 				final ObjectRule objectRule = (ObjectRule)relation.subject;
-				final Identifier[] parameterNames = objectRule.getChildNames();
-				final int count = parameterNames.length;
-				final Object[] parameters = new Object[count];
-				for(int i = 0; i < count; i++) {
-					parameters[i] = contents.get(parameterNames[i]);
+				final Object[] parameters;
+				if(contents == null) {
+					parameters = new Object[objectRule.getRelationshipCount()];
+				} else {
+					parameters = contents;
+					for(int i = 0; i < parameters.length; i++) {
+						if(parameters[i] == NULL) {
+							parameters[i] = null;
+						}
+					}
 				}
 
 				if(seenError) {
@@ -258,14 +303,17 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		 * @param node
 		 * @return
 		 */
-		boolean valid(Node node) {
+		boolean valid(Locus node) {
 			if(!seenError) {
 				assert relation.subjectIsObject;
 
-				final Map<Identifier, Object> unprocessedChildren = new HashMap<>(contents);
-				for(final Relationship child : ((ObjectRule)relation.subject).getRelationships()) {
+				// Only the object's own relationships have slots so there can be
+				// no extraneous children to check for
+				final Relationship[] children = ((ObjectRule)relation.subject).getRelationships();
+				for(int i = 0; i < children.length; i++) {
+					final Relationship child = children[i];
 					final Identifier name = child.subjectKey;
-					final Object object = unprocessedChildren.remove(name);
+					final Object object = contents == null || contents[i] == NULL ? null : contents[i];
 
 					// Check the cardinality...
 					final int objectCount;
@@ -276,8 +324,8 @@ public class AstToTemplateTree extends AstVisitor.Base {
 						final Map<String, Object> map = (Map<String, Object>)object;
 						objectCount = map.size();
 
-						if(!relation.subjectIsObject) {
-							final PropertyRule property = (PropertyRule)relation.subject;
+						if(!child.subjectIsObject) {
+							final PropertyRule property = (PropertyRule)child.subject;
 							property.validateMap(map);
 						}
 					} else if(object instanceof Collection) {
@@ -286,9 +334,9 @@ public class AstToTemplateTree extends AstVisitor.Base {
 						final Collection<Object> collection = (Collection<Object>)object;
 						objectCount = collection.size();
 
-						if(!relation.subjectIsObject) {
-							final PropertyRule property = (PropertyRule)relation.subject;
-							property.validateObject(collection);
+						if(!child.subjectIsObject) {
+							final PropertyRule property = (PropertyRule)child.subject;
+							property.validateCollection(collection);
 						}
 					} else {
 						objectCount = 1;
@@ -303,11 +351,6 @@ public class AstToTemplateTree extends AstVisitor.Base {
 						error(node, "Need " + cardinality + " " + name + "(s)" + " in " + context);
 					}
 				}
-
-				// Check for unprocessed parts...
-				for(final Identifier childName : unprocessedChildren.keySet()) {
-					error(node, "Invalid member: " + childName);
-				}
 			}
 
 			return !seenError;
@@ -326,7 +369,7 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		 * @param relationName
 		 * @return The best guess relationName
 		 */
-		private Relationship getBestGuess(Node node, Identifier name) {
+		private Relationship getBestGuess(Locus node, Identifier name) {
 			final Relationship result;
 
 			// todo Implement something that makes sense
@@ -347,6 +390,9 @@ public class AstToTemplateTree extends AstVisitor.Base {
 
 	}
 
+	/** Marks a singleton in State.contents that is present but null */
+	private final static Object NULL = new Object();
+
 	private State state;
 	private final Map<Identifier, Relationship> rootMap = new HashMap<>();
 	private Object root;
@@ -383,6 +429,199 @@ public class AstToTemplateTree extends AstVisitor.Base {
 
 	@Override
 	public void exit(Oak oak) {
+		runVisitors();
+	}
+
+	/**
+	 * Build the template tree directly from the events of an OakReader rather
+	 * than from an AST. The same rules are applied and the same errors
+	 * reported but the document is never held in memory: objects are
+	 * constructed as soon as their closing brace is read.
+	 *
+	 * @param reader
+	 *            The reader positioned at the start of the document.
+	 * @throws OakException
+	 *             Thrown if the reader finds a syntax error.
+	 */
+	public void read(OakReader reader) throws OakException {
+		/*
+		 * For each object or array we're in: where it started, for error
+		 * messages, and what it is.
+		 */
+		final Deque<Locus> loci = new ArrayDeque<>();
+		final Deque<Boolean> isObjectArray = new ArrayDeque<>();
+		Identifier name = null;
+		Locus nameLocus = null;
+
+		OakReader.Event event;
+		while((event = reader.next()) != OakReader.Event.END_DOCUMENT) {
+			switch(event) {
+			case NAME:
+				name = Identifier.intern(reader.getName());
+				nameLocus = toLocus(reader);
+				break;
+
+			case START_OBJECT:
+				if(name == null) {
+					// An object in an array of objects
+					loci.push(toLocus(reader));
+					state = new State();
+					if(!isObjectArray.isEmpty()) {
+						isObjectArray.pop();
+						isObjectArray.push(Boolean.TRUE);
+					}
+				} else {
+					loci.push(nameLocus);
+					state = new State(nameLocus, name);
+				}
+				isObjectArray.push(Boolean.FALSE);
+				name = null;
+				break;
+
+			case END_OBJECT:
+				isObjectArray.pop();
+				popObject(loci.pop());
+				break;
+
+			case START_ARRAY:
+				loci.push(nameLocus);
+				state = new State(nameLocus, name);
+				isObjectArray.push(Boolean.FALSE);
+				name = null;
+				break;
+
+			case END_ARRAY:
+				if(isObjectArray.pop().booleanValue()) {
+					endObjectArray(loci.pop());
+				} else {
+					endValueArray(loci.pop());
+				}
+				break;
+
+			case VALUE:
+				if(name == null) {
+					// A value in an array
+					value(toLocus(reader), reader.getType(), reader.getValue());
+				} else {
+					state = new State(nameLocus, name);
+					value(nameLocus, reader.getType(), reader.getValue());
+					endValuePair(nameLocus);
+					name = null;
+				}
+				break;
+
+			case END_DOCUMENT:
+			default:
+				throw new UnexpectedException("read: " + event);
+			}
+		}
+
+		runVisitors();
+	}
+
+	// E.g. "MyObject [{ key:a; }, { key:b; }, { key:c; }]"...
+
+	@Override
+	public void enter(ObjectArrayPairNode node) {
+		push(node);
+	}
+
+	@Override
+	public void exit(ObjectArrayPairNode node) {
+		endObjectArray(node);
+	}
+
+	@Override
+	public void enter(ObjectNode node) {
+		state = new State();
+	}
+
+	@Override
+	public void exit(ObjectNode node) {
+		popObject(node);
+	}
+
+	// E.g. "MyObject { key:a; }"...
+
+	@Override
+	public void enter(ObjectPairNode node) {
+		push(node);
+	}
+
+	@Override
+	public void exit(ObjectPairNode node) {
+		popObject(node);
+	}
+
+	// E.g. "myProperty: 42;"...
+
+	@Override
+	public void enter(ValuePairNode node) {
+		push(node);
+	}
+
+	@Override
+	public void exit(ValuePairNode node) {
+		endValuePair(node);
+	}
+
+	// E.g. "myProperty[ 1, 2, 3 ]"...
+
+	@Override
+	public void enter(ValueArrayPairNode node) {
+		push(node);
+	}
+
+	@Override
+	public void exit(ValueArrayPairNode node) {
+		endValueArray(node);
+	}
+
+	// E.g. "myProperty: /abc/def;"...
+
+	@Override
+	public void visit(PathNode node) {
+		path(node, node.path);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visit(IdentifierNode node) {
+		identifier(node, node.identifier);
+	}
+
+	// E.g. "myProperty: 42;"...
+
+	@Override
+	public void visit(ConstantNode node) {
+		constant(node);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void visit(CardinalityNode node) {
+		cardinality(node, node.cardinality);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		final String result;
+		if(state == null) {
+			result = "Transformer-stateless";
+		} else {
+			result = "Transformer-" + state.toString();
+		}
+		return result;
+	}
+
+	private void runVisitors() {
 		if(!advisory.hasErrors() && visitors != null) {
 			// Send any visitors around...
 
@@ -414,20 +653,12 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		}
 	}
 
-	// E.g. "MyObject [{ key:a; }, { key:b; }, { key:c; }]"...
-
-	@Override
-	public void enter(ObjectArrayPairNode node) {
-		push(node);
-	}
-
-	@Override
-	public void exit(ObjectArrayPairNode node) {
+	private void endObjectArray(Locus node) {
 		if(state.seenError) {
 			pop();
 		} else {
 			final Relationship relation = state.relation;
-			final Object object = state.contents.get(relation.subjectKey);
+			final Object object = state.getValue();
 			pop();
 			if(object instanceof Map) {
 				@SuppressWarnings("unchecked")
@@ -444,42 +675,12 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		}
 	}
 
-	@Override
-	public void enter(ObjectNode node) {
-		push(node);
-	}
-
-	@Override
-	public void exit(ObjectNode node) {
-		popObject(node);
-	}
-
-	// E.g. "MyObject { key:a; }"...
-
-	@Override
-	public void enter(ObjectPairNode node) {
-		push(node);
-	}
-
-	@Override
-	public void exit(ObjectPairNode node) {
-		popObject(node);
-	}
-
-	// E.g. "myProperty: 42;"...
-
-	@Override
-	public void enter(ValuePairNode node) {
-		push(node);
-	}
-
-	@Override
-	public void exit(ValuePairNode node) {
+	private void endValuePair(Locus node) {
 		if(state.seenError) {
 			pop();
 		} else {
 			final Relationship relation = state.relation;
-			final Object value = state.contents.get(relation.subjectKey);
+			final Object value = state.getValue();
 			pop();
 			if(value != null) {
 				if(value instanceof List) {
@@ -494,21 +695,13 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		}
 	}
 
-	// E.g. "myProperty[ 1, 2, 3 ]"...
-
-	@Override
-	public void enter(ValueArrayPairNode node) {
-		push(node);
-	}
-
-	@Override
-	public void exit(ValueArrayPairNode node) {
+	private void endValueArray(Locus node) {
 		if(state.seenError) {
 			pop();
 		} else {
 			final Relationship relation = state.relation;
 			@SuppressWarnings("unchecked")
-			final List<Object> values = (List<Object>)state.contents.get(relation.subjectKey);
+			final List<Object> values = (List<Object>)state.getValue();
 			pop();
 			for(final Object value : values) {
 				state.add(node, relation, value);
@@ -516,145 +709,145 @@ public class AstToTemplateTree extends AstVisitor.Base {
 		}
 	}
 
-	// E.g. "myProperty: /abc/def;"...
+	/**
+	 * Add a value read by an OakReader, the types are handled as the
+	 * corresponding AST nodes would be.
+	 */
+	private void value(Locus node, DataType type, Object value) {
+		switch(type) {
+		case identifier:
+			identifier(node, (Identifier)value);
+			break;
+
+		case cardinality:
+			cardinality(node, (Cardinality)value);
+			break;
+
+		default:
+			constant(ConstantNode.toConstant(node, type, value));
+			break;
+		}
+	}
 
-	@Override
-	public void visit(PathNode node) {
+	private void path(Locus node, Object value) {
 		if(!state.seenError) {
 			final PropertyRule rule = (PropertyRule)state.relation.subject;
 			// ?todo Why might rule be null here?
 			if(rule != null) {
-				final Object value = node.path;
 				if(rule.dataType == DataType.path || rule.dataType == DataType.any) {
-					state.add(node, state.relation, value);
+					state.addValue(node, value);
 				} else {
 					advisory.error(
 							node,
 							"Wrong data type; expected path but got: " + rule.dataType
 									+ " '" + (value == null ? "null" : value.toString()));
-					state.add(node, state.relation, null);
+					state.addValue(node, null);
 				}
 			}
 		}
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void visit(IdentifierNode node) {
+	private void identifier(Locus node, Identifier value) {
 		if(!state.seenError) {
 			final PropertyRule rule = (PropertyRule)state.relation.subject;
 			if(rule != null) {
-				final Object value = node.identifier;
 				if(rule.dataType == DataType.identifier || rule.dataType == DataType.any) {
-					state.add(node, state.relation, value);
+					state.addValue(node, value);
 				} else {
 					advisory.error(
 							node,
 							"Wrong data type; expected path but got: " + rule.dataType
 									+ " '" + (value == null ? "null" : value.toString()));
-					state.add(node, state.relation, null);
+					state.addValue(node, null);
 				}
 			}
 		}
 	}
 
-	// E.g. "myProperty: 42;"...
-
-	@Override
-	public void visit(ConstantNode node) {
+	private void constant(ConstantNode node) {
 		if(state.relation != null) {
 			final PropertyRule rule = (PropertyRule)state.relation.subject;
-			final Object value;
+			final Object converted;
 			switch(rule.dataType) {
 			case identifier:
-				value = node.getIdentifierValue();
+				converted = node.getIdentifierValue();
 				break;
 			case path:
-				value = node.getPathValue();
+				converted = node.getPathValue();
 				break;
 			case text:
-				value = node.getTextValue();
+				converted = node.getTextValue();
 				break;
 			case z:
-				value = node.getInteger();
+				converted = node.getInteger();
 				break;
 			case Z:
-				value = node.getBigInteger();
+				converted = node.getBigInteger();
 				break;
 			case f:
-				value = node.getFloat();
+				converted = node.getFloat();
 				break;
 			case F:
-				value = node.getBigFloat();
+				converted = node.getBigFloat();
 				break;
 			case bool:
-				value = node.getBooleanValue();
+				converted = node.getBooleanValue();
 				break;
 			case cardinality:
-				value = node.getCardinality();
+				converted = node.getCardinality();
 				break;
 			case datetime:
-				value = node.getDatetime();
+				converted = node.getDatetime();
 				break;
 			case date:
-				value = node.getDate();
+				converted = node.getDate();
 				break;
 			case time:
-				value = node.getTime();
+				converted = node.getTime();
 				break;
 			case any:
-				value = node.getValue();
+				converted = node.getValue();
 				break;
 			default:
 				throw new UnexpectedException("visit: " + rule.dataType);
 			}
-			state.add(node, state.relation, value);
+			state.addValue(node, converted);
 		}
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void visit(CardinalityNode node) {
+	private void cardinality(Locus node, Cardinality value) {
 		if(!state.seenError) {
 			final PropertyRule rule = (PropertyRule)state.relation.subject;
-			final Object value;
 			if(rule.dataType == DataType.cardinality) {
-				value = node.cardinality;
+				state.addValue(node, value);
 			} else {
 				// todo Implement me
 				throw new ImplementMeException();
 			}
-			state.add(node, state.relation, value);
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Node uses a zero-based line and column, the reader one-based.
 	 */
-	@Override
-	public String toString() {
-		final String result;
-		if(state == null) {
-			result = "Transformer-stateless";
-		} else {
-			result = "Transformer-" + state.toString();
-		}
+	private Locus toLocus(OakReader reader) {
+		final Locus result = new Locus.Base();
+		result.setSourcePosition(reader.getLine() - 1, reader.getColumn() - 1);
 		return result;
 	}
 
-	private void popObject(Node node) {
+	private void popObject(Locus node) {
 		if(state.valid(node)) {
 			final Object object = state.toObject(node);
 			final Relationship relation = state.relation;
+			final boolean inArray = state.inArray;
 			pop();
 			if(object != null) {
 				if(state == null) {
 					root = object;
 					// visitorsList = ((Dialect)object).visitorsList;
+				} else if(inArray) {
+					state.addValue(node, object);
 				} else {
 					state.add(node, relation, object);
 				}
@@ -668,11 +861,7 @@ public class AstToTemplateTree extends AstVisitor.Base {
 	}
 
 	private void push(PairNode context) {
-		state = new State(context);
-	}
-
-	private void push(Node context) {
-		state = new State(context);
+		state = new State(context, context.getName());
 	}
 
 	private void pop() {
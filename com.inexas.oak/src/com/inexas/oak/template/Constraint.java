@@ -171,9 +171,11 @@ public abstract class Constraint extends Locus.Base implements Keyed {
 	 */
 	protected void valuesToTextArray(Text t) {
 		t.append('[');
-		for(final Object option : values) {
-			t.delimit();
-			valueToText(t, option);
+		if(values != null) {
+			for(final Object option : values) {
+				t.delimit();
+				valueToText(t, option);
+			}
 		}
 		t.space();
 		t.append(']');
@@ -260,15 +262,19 @@ public abstract class Constraint extends Locus.Base implements Keyed {
 	 *
 	 * @param values
 	 *            Values to convert; e.g. "1", "\"two\"", "three"
-	 * @return Converted values; e.g. 1, "two" three.
+	 * @return Converted values; e.g. 1, "two" three, or null if values is null.
 	 */
 	private static Object[] toType(String[] values) {
 		final Object[] result;
 
-		final int length = values.length;
-		result = new Object[length];
-		for(int i = 0; i < length; i++) {
-			result[i] = DataType.parseValue(values[i]);
+		if(values == null) {
+			result = null;
+		} else {
+			final int length = values.length;
+			result = new Object[length];
+			for(int i = 0; i < length; i++) {
+				result[i] = DataType.parseValue(values[i]);
+			}
 		}
 
 		return result;
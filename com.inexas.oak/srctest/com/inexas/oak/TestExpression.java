@@ -1,11 +1,14 @@
 package com.inexas.oak;
 
 import static org.junit.Assert.*;
-import java.math.BigDecimal;
+import java.math.*;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
 import org.junit.Test;
-import com.inexas.oak.advisory.OakException;
+import com.inexas.oak.advisory.*;
 import com.inexas.oak.ast.*;
+import com.inexas.oak.ast.LibraryRegistry.LibraryException;
 
 public class TestExpression {
 
@@ -15,6 +18,11 @@ public class TestExpression {
 			return LocalDateTime.now();
 		}
 
+		@Function(dynamic = true)
+		public int dynamic(int x) {
+			return x;
+		}
+
 		@Function
 		public String isStatic() {
 			return "x";
@@ -75,6 +83,21 @@ public class TestExpression {
 			return x - y;
 		}
 
+		@Function(cacheSize = 8)
+		public int cube(int x) {
+			return x * x * x;
+		}
+
+		@Function(dynamic = true)
+		public long twice(long x) {
+			return 2 * x;
+		}
+
+		@Function(dynamic = true)
+		public Double half(double x) {
+			return new Double(x / 2);
+		}
+
 		@Override
 		public Object resolve(String identifier) {
 			final Object result;
@@ -418,9 +441,370 @@ public class TestExpression {
 		doTest("15", "five * 3");
 	}
 
+	@Test
+	public void testUnresolvedSymbol() {
+		// Only the symbol is reported, not the expressions that use it
+		for(final String string : new String[] {
+				"unknown * 3",
+				"-(unknown * 3) + dynamic(1)",
+				"dynamic(unknown) > 2 ? 1 : 2" }) {
+			try {
+				new Expression(string, new TestFunclib());
+				fail("Expected an OakException: " + string);
+			} catch(final OakException e) {
+				final Advisory advisory = e.getAdvisory();
+				assertEquals(string, 1, advisory.getErrorCount());
+				assertTrue(advisory.getFirstError().indexOf("unknown") >= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testDecimalConstants() throws OakException {
+		assertEquals(new Float(2.5f), new Expression("2.5").evaluate().getFloat());
+		assertEquals(new BigDecimal("2.5"), new Expression("2.5F").evaluate().getBigFloat());
+	}
+
 	@Test
 	public void testBigDecimalEqual() throws OakException {
 		doTest("true", "5.0F = 5.00F");
 		doTest("false", "5.0F != 5.00F");
 	}
+
+	@Test
+	public void testFolding() throws OakException {
+		doTest("3600000", "60 * 60 * 1000");
+		doTest("dynamic(1) + 6", "dynamic(1) + 2 * 3");
+		doTest("dynamic(1)", "true ? dynamic(1) : 2");
+		doTest("2.5", "false ? dynamic(1) : 2.5");
+		doTest("dynamic(1) > 0 ? 1 : 2", false, null, "1");
+
+		// The folded constant takes the position of the expression it replaces
+		final ExpressionNode root = new Expression("\n  4 * 5", new TestFunclib()).getRoot();
+		assertTrue(root instanceof ConstantNode);
+		assertEquals(1, root.getLine());
+		assertEquals(2, root.getColumn());
+	}
+
+	@Test
+	public void testFoldingError() {
+		try {
+			new Expression("dynamic(1) +\n  1 / 0", new TestFunclib());
+			fail();
+		} catch(final OakException e) {
+			final Advisory advisory = e.getAdvisory();
+			assertEquals(1, advisory.getErrorCount());
+			assertTrue(advisory.getFirstError().startsWith("Error evaluating constant expression"));
+			assertTrue(advisory.toString().contains(":2 "));
+		}
+	}
+
+	@Test
+	public void testPrimitiveEvaluation() throws OakException {
+		final TestFunclib library = new TestFunclib();
+		final String[] intExpressions = {
+				"dynamic(3) + 4 * dynamic(2)",
+				"dynamic(7) / 2 - dynamic(7) % 3",
+				"dynamic(1) << 4 | dynamic(3) ^ 1",
+				"-dynamic(3) + ~dynamic(5) >>> 28",
+				"dynamic(2) = 2 ? dynamic(8) : 9",
+				"five * dynamic(3)" };
+		for(final String source : intExpressions) {
+			final Expression expression = new Expression(source, library);
+			final Object expected = expression.evaluate().getValue();
+			assertEquals(source, expected, new Integer(expression.evaluateInt()));
+			assertEquals(source, ((Integer)expected).floatValue(), expression.evaluateFloat(), 0f);
+		}
+
+		final String[] floatExpressions = {
+				"dynamic(3) + 0.5",
+				"-(dynamic(3) / 2.0) * 1.5",
+				"dynamic(1) > 0 ? dynamic(1) : 2.5" };
+		for(final String source : floatExpressions) {
+			final Expression expression = new Expression(source, library);
+			final Object expected = expression.evaluate().getValue();
+			assertEquals(source, ((Number)expected).floatValue(), expression.evaluateFloat(), 0f);
+		}
+
+		final String[] booleanExpressions = {
+				"dynamic(3) > 2 && dynamic(1) < 2",
+				"dynamic(3) <= 2 || !(dynamic(1) != 2)",
+				"dynamic(3) >= 2.5 ^ dynamic(1) = 1.0",
+				"(dynamic(1) = 1) = (dynamic(2) = 2)" };
+		for(final String source : booleanExpressions) {
+			final Expression expression = new Expression(source, library);
+			final Object expected = expression.evaluate().getValue();
+			assertEquals(source, expected, Boolean.valueOf(expression.evaluateBoolean()));
+		}
+	}
+
+	@Test(expected = OakRuntimeException.class)
+	public void testPrimitiveTypeMismatch() throws OakException {
+		new Expression("dynamic(6) > 5", new TestFunclib()).evaluateFloat();
+	}
+
+	@Test
+	public void testVariables() throws OakException {
+		final Variables variables = new Variables()
+				.declare("x", DataType.z)
+				.declare("y", DataType.f)
+				.declare("name", DataType.text)
+				.declare("five", DataType.bool);
+		final Expression expression = new Expression(
+				"five ? x * 2 + y : -x",
+				variables,
+				new TestFunclib());
+		assertFalse(expression.isStatic());
+		assertEquals(DataType.f, expression.getType());
+		assertEquals("x * 2 + y", new Expression("x * 2 + y", variables).toString());
+
+		final CompiledExpression compiled = expression.compile();
+		final Bindings bindings = new Bindings(variables);
+		for(int i = 0; i < 10; i++) {
+			bindings.setInt(0, i);
+			bindings.setFloat(1, i / 2f);
+			bindings.setBoolean(3, (i & 1) == 0);
+			final float expected = (i & 1) == 0 ? i * 2 + i / 2f : -i;
+			assertEquals(expected, expression.evaluateFloat(bindings), 0f);
+			assertEquals(new Float(expected), expression.evaluate(bindings).getValue());
+			assertEquals(expected, compiled.evaluateFloat(bindings), 0f);
+			assertEquals(new Float(expected), compiled.evaluate(bindings));
+		}
+
+		bindings.set("name", "Oak");
+		assertEquals("Hello Oak", new Expression("\"Hello \" + name", variables).evaluate(bindings).getValue());
+	}
+
+	@Test(expected = OakRuntimeException.class)
+	public void testMissingBindings() throws OakException {
+		final Variables variables = new Variables().declare("x", DataType.z);
+		new Expression("x + 1", variables).evaluateInt();
+	}
+
+	@Test(expected = OakRuntimeException.class)
+	public void testBindingTypeMismatch() throws OakException {
+		final Variables variables = new Variables().declare("x", DataType.z);
+		new Bindings(variables).set("x", "not a number");
+	}
+
+	@Test
+	public void testColumns() throws OakException {
+		final Variables variables = new Variables()
+				.declare("x", DataType.z)
+				.declare("y", DataType.f)
+				.declare("b", DataType.bool);
+		final int size = 100;
+		final int[] xs = new int[size];
+		final float[] ys = new float[size];
+		final long[] bs = Columns.newBitmap(size);
+		for(int row = 0; row < size; row++) {
+			xs[row] = row - 50;
+			ys[row] = row / 4f;
+			if(row % 3 == 0) {
+				Columns.setBit(bs, row);
+			}
+		}
+		final Columns columns = new Columns(variables, size);
+		columns.setInts(0, xs);
+		columns.setFloats(1, ys);
+		columns.setBooleans(2, bs);
+		final Bindings bindings = new Bindings(variables);
+		final TestFunclib library = new TestFunclib();
+
+		final String[] intExpressions = {
+				"x * 3 - -x % 7 + (x << 2) ^ ~x",
+				"x",
+				"b ? x : 2 * x",
+				"x != 0 ? 100 / x : 0",
+				"dynamic(x) + 1" };
+		for(final String source : intExpressions) {
+			final Expression expression = new Expression(source, variables, library);
+			final int[] results = expression.evaluateInts(columns);
+			for(int row = 0; row < size; row++) {
+				columns.bind(row, bindings);
+				assertEquals(source, expression.evaluateInt(bindings), results[row]);
+			}
+		}
+
+		final String[] floatExpressions = { "x * y - y / 2", "-y", "b ? y : x" };
+		for(final String source : floatExpressions) {
+			final Expression expression = new Expression(source, variables, library);
+			final float[] results = expression.evaluateFloats(columns);
+			for(int row = 0; row < size; row++) {
+				columns.bind(row, bindings);
+				assertEquals(source, expression.evaluateFloat(bindings), results[row], 0f);
+			}
+		}
+
+		final String[] booleanExpressions = {
+				"x > 0 && y <= 20.0 || b",
+				"!b ^ x = 0",
+				"x != 0 && 100 / x > 3",
+				"b",
+				"y >= x ? b : !b" };
+		for(final String source : booleanExpressions) {
+			final Expression expression = new Expression(source, variables, library);
+			final long[] results = expression.evaluateBooleans(columns);
+			assertEquals(Columns.newBitmap(size).length, results.length);
+			for(int row = 0; row < size; row++) {
+				columns.bind(row, bindings);
+				assertEquals(source, expression.evaluateBoolean(bindings), Columns.getBit(results, row));
+			}
+		}
+	}
+
+	@Test
+	public void testColumnsLongerThanBatch() throws OakException {
+		final Variables variables = new Variables()
+				.declare("x", DataType.z)
+				.declare("y", DataType.f);
+		final Columns columns = new Columns(variables, 3);
+		final int[] xs = { 1, 2, 3, 4, 5 };
+		final float[] ys = { 1.5f, 2.5f, 3.5f, 4.5f, 5.5f };
+		columns.setInts(0, xs);
+		columns.setFloats(1, ys);
+
+		final int[] ints = new Expression("x", variables).evaluateInts(columns);
+		assertArrayEquals(new int[] { 1, 2, 3 }, ints);
+		assertNotSame(xs, ints);
+
+		final float[] floats = new Expression("y", variables).evaluateFloats(columns);
+		assertArrayEquals(new float[] { 1.5f, 2.5f, 3.5f }, floats, 0f);
+		assertNotSame(ys, floats);
+	}
+
+	private void doCompileTest(String toTest) throws OakException {
+		final Expression expression = new Expression(toTest, new TestFunclib());
+		final Object expected = expression.evaluate().getValue();
+		final CompiledExpression compiled = expression.compile();
+		assertEquals(expression.getType(), compiled.getType());
+		assertEquals(expected, compiled.evaluate());
+		assertEquals(expected, compiled.evaluate());
+	}
+
+	@Test
+	public void testCompile() throws OakException {
+		doCompileTest("dynamic(3) + 4 * dynamic(2)");
+		doCompileTest("dynamic(7) / 2 - dynamic(7) % 3");
+		doCompileTest("dynamic(1) << 4 | dynamic(3) ^ 1");
+		doCompileTest("-dynamic(3) + ~dynamic(5)");
+		doCompileTest("dynamic(3) + 0.5");
+		doCompileTest("dynamic(3) > 2 && dynamic(1) < 2");
+		doCompileTest("dynamic(3) < 2 || !(dynamic(1) = 2)");
+		doCompileTest("dynamic(2) = 2 ? 1.5 : 2.5");
+		doCompileTest("five * dynamic(3)");
+		doCompileTest("plus(dynamic(3), 4) - minus(dynamic(9), 2)");
+		doCompileTest("dynamic(3) * 10000000000000000000Z");
+		doCompileTest("dynamic(3) + 1.5F");
+		doCompileTest("(dynamic(1) = 1 ? \"a\" : \"b\") + \"c\"");
+	}
+
+	@Test
+	public void testCompiledPrimitives() throws OakException {
+		final Expression expression = new Expression("dynamic(6) * 7", new TestFunclib());
+		final CompiledExpression compiled = expression.compile();
+		assertEquals(42, compiled.evaluateInt());
+		assertEquals(42f, compiled.evaluateFloat(), 0f);
+		assertTrue(new Expression("dynamic(6) > 5", new TestFunclib()).compile().evaluateBoolean());
+	}
+
+	@Test
+	public void testFunctionConversions() throws OakException {
+		final Expression twice = new Expression("twice(21Z)", new TestFunclib());
+		assertEquals(DataType.Z, twice.getType());
+		assertEquals(BigInteger.valueOf(42), twice.evaluate().getValue());
+		assertEquals(BigInteger.valueOf(42), twice.compile().evaluate());
+
+		final Expression half = new Expression("half(2.5F)", new TestFunclib());
+		assertEquals(DataType.F, half.getType());
+		assertEquals(0, new BigDecimal("1.25").compareTo((BigDecimal)half.evaluate().getValue()));
+		assertEquals(0, new BigDecimal("1.25").compareTo((BigDecimal)half.compile().evaluate()));
+	}
+
+	@Test
+	public void testCachedFunction() throws OakException, LibraryException {
+		final Variables variables = new Variables().declare("x", DataType.z);
+		final Expression expression = new Expression("cube(x) + 1", variables, new TestFunclib());
+		final CompiledExpression compiled = expression.compile();
+		final Bindings bindings = new Bindings(variables);
+		for(int i = 0; i < 4; i++) {
+			bindings.setInt(0, i % 2);
+			assertEquals(i % 2 + 1, expression.evaluateInt(bindings));
+			assertEquals(i % 2 + 1, compiled.evaluateInt(bindings));
+		}
+		final FunctionCache cache = expression.getRegistry().getCache("cube", DataType.z);
+		assertEquals(2, cache.getMisses());
+		assertEquals(6, cache.getHits());
+	}
+
+	@Test
+	public void testConcurrentEvaluation() throws Exception {
+		final Variables variables = new Variables().declare("x", DataType.z).declare("y", DataType.f);
+		final Expression expression = new Expression(
+				"x > 50 ? cube(x % 7) + five * x : minus(y, 1.5) * 2",
+				variables,
+				new TestFunclib());
+		final CompiledExpression compiled = expression.compile();
+
+		// Threads from the pool have nothing attached to their TadContext
+		final int threadCount = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Future<Integer>> futures = new ArrayList<>();
+		for(int t = 0; t < threadCount; t++) {
+			final int offset = t;
+			futures.add(executor.submit(() -> {
+				final Bindings bindings = new Bindings(variables);
+				start.await();
+				int count = 0;
+				for(int i = 0; i < 10_000; i++) {
+					final int x = (i + offset) % 100;
+					final float y = x / 4f;
+					bindings.setInt(0, x);
+					bindings.setFloat(1, y);
+					final int m = x % 7;
+					final float expected = x > 50 ? m * m * m + 5 * x : (y - 1.5f) * 2;
+					assertEquals(expected, expression.evaluateFloat(bindings), 0f);
+					assertEquals(new Float(expected), expression.evaluate(bindings).getValue());
+					assertEquals(expected, compiled.evaluateFloat(bindings), 0f);
+					count++;
+				}
+				return new Integer(count);
+			}));
+		}
+		start.countDown();
+		for(final Future<Integer> future : futures) {
+			assertEquals(new Integer(10_000), future.get(60, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void testExpressionCache() throws OakException {
+		final ExpressionCache cache = new ExpressionCache(2);
+		final TestFunclib library = new TestFunclib();
+		final Expression expression = cache.get("dynamic(2) + 1", null, library);
+		assertSame(expression, cache.get("dynamic(2) + 1", null, library));
+		assertNotSame(expression, cache.get("dynamic(2) + 1", null, new TestFunclib()));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1. / 3, cache.getHitRate(), 1e-9);
+
+		cache.get("dynamic(3)", null, library);
+		assertEquals(2, cache.getCount());
+		assertEquals(1, cache.getEvictions());
+
+		cache.setMaximumSize(1);
+		assertEquals(1, cache.getCount());
+		assertNotSame(expression, cache.get("dynamic(2) + 1", null, library));
+
+		final Expression shared = Expression.cached("dynamic(4) * 2", library);
+		assertSame(shared, Expression.cached("dynamic(4) * 2", library));
+		assertEquals(8, shared.evaluateInt());
+	}
+
+	@Test(expected = OakRuntimeException.class)
+	public void testCompiledTypeMismatch() throws OakException {
+		new Expression("dynamic(6) > 5", new TestFunclib()).compile().evaluateInt();
+	}
 }
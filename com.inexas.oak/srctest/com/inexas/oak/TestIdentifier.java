@@ -11,6 +11,8 @@
 package com.inexas.oak;
 
 import static org.junit.Assert.*;
+import java.io.*;
+import java.util.*;
 import org.junit.Test;
 import com.inexas.oak.advisory.Advisory;
 import com.inexas.tad.TadContext;
@@ -50,4 +52,126 @@ public class TestIdentifier {
 
 		TadContext.detach(advisory);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testHashCode() {
+		for(final String string : new String[] { "a", "ab", "ba", "userId", "A0a_", "_" }) {
+			final Identifier identifier = new Identifier(string);
+			assertEquals(string.hashCode(), identifier.hashCode());
+			assertEquals(string.hashCode(), new Identifier(identifier).hashCode());
+		}
+		assertNotEquals(new Identifier("ab").hashCode(), new Identifier("ba").hashCode());
+	}
+
+	@Test
+	public void testEquals() {
+		final Identifier ab = new Identifier("ab");
+		final Identifier ba = new Identifier("ba");
+		assertNotEquals(ab, ba);
+		ab.hashCode();
+		ba.hashCode();
+		assertNotEquals(ab, ba);
+
+		final Identifier copy = new Identifier("ab");
+		assertEquals(ab, copy);
+		copy.hashCode();
+		assertEquals(ab, copy);
+		assertEquals(0, ab.compareTo(copy));
+	}
+
+	@Test
+	public void testIntern() {
+		final Identifier a = Identifier.intern("userId");
+		assertSame(a, Identifier.intern(new StringBuilder("user").append("Id")));
+		assertEquals(new Identifier("userId"), a);
+		assertNotSame(a, Identifier.intern("userid"));
+	}
+
+	@Test(expected = ParsingException.class)
+	public void testInternInvalid() {
+		Identifier.intern("1abc");
+	}
+
+	@Test
+	public void testInternTooLong() {
+		final String string = "ab123456789012345678901234567890x";
+		final Advisory advisory = new Advisory(string);
+		TadContext.attach(advisory);
+		try {
+			Identifier.intern(string);
+			Identifier.intern(string);
+			assertEquals(2, advisory.getErrorCount());
+		} finally {
+			TadContext.detach(advisory);
+		}
+	}
+
+	private final static String[] strings = {
+			"a",
+			"ab",
+			"abcdefg",
+			"abcdefgh",
+			"abcdefgh_",
+			"abcdefgh0123456",
+			"abcdefgh01234567",
+			"abcdefgh01234567Z",
+			"ab123456789012345678901234567890",
+			"B",
+			"_z"
+	};
+
+	@Test
+	public void testPacking() {
+		for(final String string : strings) {
+			final Identifier identifier = new Identifier(string);
+			assertEquals(string, identifier.toString());
+			assertEquals(string.length(), identifier.length());
+			for(int i = 0; i < string.length(); i++) {
+				assertEquals(string.charAt(i), identifier.charAt(i));
+			}
+			assertEquals(string.hashCode(), identifier.hashCode());
+		}
+	}
+
+	@Test
+	public void testCompareTo() {
+		final List<String> expected = new ArrayList<>(Arrays.asList(strings));
+		final List<Identifier> identifiers = new ArrayList<>();
+		for(final String string : strings) {
+			identifiers.add(new Identifier(string));
+		}
+		Collections.sort(expected);
+		Collections.sort(identifiers);
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), identifiers.get(i).toString());
+		}
+
+		for(final String lhs : strings) {
+			for(final String rhs : strings) {
+				assertEquals(
+						Integer.signum(lhs.compareTo(rhs)),
+						Integer.signum(new Identifier(lhs).compareTo(new Identifier(rhs))));
+				assertEquals(lhs.equals(rhs), new Identifier(lhs).equals(new Identifier(rhs)));
+			}
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCharAtOutOfBounds() {
+		new Identifier("abcdefgh").charAt(8);
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		final Identifier identifier = new Identifier("abcdefgh01234567Z");
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(final ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(identifier);
+		}
+		try(final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			final Identifier read = (Identifier)ois.readObject();
+			assertEquals(identifier, read);
+			assertEquals(identifier.hashCode(), read.hashCode());
+		}
+	}
+}
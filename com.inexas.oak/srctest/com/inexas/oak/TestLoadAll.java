@@ -0,0 +1,98 @@
+package com.inexas.oak;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.*;
+import org.junit.Test;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.ast.AstVisitor;
+import com.inexas.oak.examples.*;
+import com.inexas.tad.TadContext;
+
+public class TestLoadAll {
+	private final static int FILES = 50;
+
+	private void write(Path path, String string) throws IOException {
+		Files.write(path, string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void delete(Path directory) throws IOException {
+		try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(final Path path : stream) {
+				if(Files.isDirectory(path)) {
+					delete(path);
+				} else {
+					Files.delete(path);
+				}
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testLoadAll() throws IOException {
+		final Path directory = Files.createTempDirectory("test");
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final Path subdirectory = Files.createDirectory(directory.resolve("more"));
+			for(int i = 0; i < FILES; i++) {
+				write(
+						(i % 2 == 0 ? directory : subdirectory).resolve("p" + i + ".person"),
+						"Person { userId: u" + i + "; Email { text: \"u" + i + "@a.com\"; isHome: true; } }");
+			}
+			write(directory.resolve("bad.person"), "Person { userId: 42; }");
+			write(directory.resolve("syntax.person"), "Person { userId: x ");
+			// Fails in the Email constructor
+			write(directory.resolve("construct.person"), "Person { userId: john; Email { text: \"x\"; } }");
+			write(directory.resolve("ignore.txt"), "Not Oak");
+
+			final Map<Path, Oak.Result<Person>> results = Oak.loadAll(
+					directory,
+					"*.person",
+					PersonDialect.rulebase,
+					executor);
+			assertEquals(FILES + 3, results.size());
+
+			int errors = 0;
+			for(final Oak.Result<Person> result : results.values()) {
+				if(result.hasErrors()) {
+					errors++;
+					assertNull(result.getRoot());
+					assertTrue(result.getAdvisory().getErrorCount() > 0);
+				} else {
+					final String name = result.getPath().getFileName().toString();
+					final String userId = "u" + name.substring(1, name.indexOf('.'));
+					assertEquals(userId, result.getRoot().userId.toString());
+				}
+			}
+			assertEquals(3, errors);
+			final Oak.Result<Person> construct = results.get(directory.resolve("construct.person"));
+			final String advice = construct.getAdvisory().toString();
+			assertTrue(advice.indexOf("OakRuntimeException: Error constructing Email") >= 0);
+			assertNull(TadContext.getButDontThrow(Advisory.class));
+		} finally {
+			executor.shutdown();
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void testContextDetachedOnException() throws OakException {
+		final Oak oak = new Oak("a: 1;");
+		try {
+			oak.accept(new AstVisitor.Base() {
+				@Override
+				public void enter(Oak node) {
+					throw new IllegalStateException();
+				}
+			});
+			fail();
+		} catch(final IllegalStateException e) {
+			assertNull(TadContext.getButDontThrow(Advisory.class));
+		}
+	}
+}
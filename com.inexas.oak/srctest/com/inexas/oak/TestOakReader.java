@@ -0,0 +1,258 @@
+package com.inexas.oak;
+
+import static org.junit.Assert.*;
+import java.math.*;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Test;
+import com.inexas.oak.OakReader.Event;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.dialect.*;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+public class TestOakReader {
+	public static class Tags {
+		final List<String> tags;
+
+		public Tags(List<String> tags) {
+			this.tags = tags;
+		}
+	}
+
+	private void expect(OakReader reader, Event event) throws OakException {
+		assertEquals(event, reader.next());
+	}
+
+	private void expectName(OakReader reader, String name) throws OakException {
+		assertEquals(Event.NAME, reader.next());
+		assertEquals(name, reader.getName());
+	}
+
+	private void expectValue(OakReader reader, DataType type, Object value) throws OakException {
+		assertEquals(Event.VALUE, reader.next());
+		assertEquals(type, reader.getType());
+		assertEquals(value, reader.getValue());
+	}
+
+	@Test
+	public void testEvents() throws OakException {
+		final OakReader reader = new OakReader(""
+				+ "Person {\n"
+				+ "	userId: john;\n"
+				+ "	isActive;\n"
+				+ "	Email [{\n"
+				+ "		text: \"john@work.com\";\n"
+				+ "	},{\n"
+				+ "		text: \"john@home.com\";\n"
+				+ "	}]\n"
+				+ "	scores [ 1, 2, 3 ]\n"
+				+ "}");
+		expectName(reader, "Person");
+		expect(reader, Event.START_OBJECT);
+		assertEquals(1, reader.getDepth());
+		expectName(reader, "userId");
+		expectValue(reader, DataType.identifier, new Identifier("john"));
+		expectName(reader, "isActive");
+		expectValue(reader, DataType.bool, Boolean.TRUE);
+		expectName(reader, "Email");
+		expect(reader, Event.START_ARRAY);
+		expect(reader, Event.START_OBJECT);
+		assertEquals(3, reader.getDepth());
+		expectName(reader, "text");
+		expectValue(reader, DataType.text, "john@work.com");
+		expect(reader, Event.END_OBJECT);
+		expect(reader, Event.START_OBJECT);
+		expectName(reader, "text");
+		expectValue(reader, DataType.text, "john@home.com");
+		expect(reader, Event.END_OBJECT);
+		expect(reader, Event.END_ARRAY);
+		expectName(reader, "scores");
+		expect(reader, Event.START_ARRAY);
+		expectValue(reader, DataType.z, new Integer(1));
+		expectValue(reader, DataType.z, new Integer(2));
+		expectValue(reader, DataType.z, new Integer(3));
+		expect(reader, Event.END_ARRAY);
+		expect(reader, Event.END_OBJECT);
+		assertEquals(0, reader.getDepth());
+		expect(reader, Event.END_DOCUMENT);
+	}
+
+	@Test
+	public void testTypes() throws Exception {
+		final OakReader reader = new OakReader(""
+				+ "a [ 1, 2z, 3Z, 0x1f, 0b101, 1.5, 2.5F, \"s\", true, null, @2016/1/2, 1..*, `/a/b` ]");
+		expectName(reader, "a");
+		expect(reader, Event.START_ARRAY);
+		expectValue(reader, DataType.z, new Integer(1));
+		expectValue(reader, DataType.z, new Integer(2));
+		expectValue(reader, DataType.Z, new BigInteger("3"));
+		expectValue(reader, DataType.z, new Integer(31));
+		expectValue(reader, DataType.z, new Integer(5));
+		expectValue(reader, DataType.f, new Float(1.5f));
+		expectValue(reader, DataType.F, new BigDecimal("2.5"));
+		expectValue(reader, DataType.text, "s");
+		expectValue(reader, DataType.bool, Boolean.TRUE);
+		expectValue(reader, DataType.any, null);
+		expectValue(reader, DataType.date, LocalDate.of(2016, 1, 2));
+		expectValue(reader, DataType.cardinality, Cardinality.newInstance("1..*"));
+		expectValue(reader, DataType.path, Path.parse("`/a/b`"));
+		expect(reader, Event.END_ARRAY);
+		expect(reader, Event.END_DOCUMENT);
+	}
+
+	@Test
+	public void testExpressions() throws OakException {
+		final OakReader reader = new OakReader("a { t: 60 * 60 * 1000; b [ -1, (2 + 3) * 2, 1 > 2 ? 1 : 2 ] }");
+		expectName(reader, "a");
+		expect(reader, Event.START_OBJECT);
+		expectName(reader, "t");
+		expectValue(reader, DataType.z, new Integer(3_600_000));
+		expectName(reader, "b");
+		expect(reader, Event.START_ARRAY);
+		expectValue(reader, DataType.z, new Integer(-1));
+		expectValue(reader, DataType.z, new Integer(10));
+		expectValue(reader, DataType.z, new Integer(2));
+		expect(reader, Event.END_ARRAY);
+		expect(reader, Event.END_OBJECT);
+		expect(reader, Event.END_DOCUMENT);
+	}
+
+	@Test(expected = OakException.class)
+	public void testSyntaxError() throws OakException {
+		final OakReader reader = new OakReader("a { b: 1 }");
+		while(reader.next() != Event.END_DOCUMENT) {
+			// Keep reading
+		}
+	}
+
+	@Test
+	public void testEmptyObject() throws OakException {
+		final OakReader reader = new OakReader("a { }");
+		expectName(reader, "a");
+		expect(reader, Event.START_OBJECT);
+		try {
+			reader.next();
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Expecting a name") >= 0);
+		}
+
+		try {
+			new OakReader("Person { }").toObjectTree(PersonDialect.rulebase);
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Expecting a name") >= 0);
+		}
+	}
+
+	@Test
+	public void testInvalidExpression() {
+		try {
+			final OakReader reader = new OakReader("a: x + 1;");
+			while(reader.next() != Event.END_DOCUMENT) {
+				// Keep reading
+			}
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Invalid expression") >= 0);
+		}
+	}
+
+	@Test(expected = OakException.class)
+	public void testTrailingInput() throws OakException {
+		final OakReader reader = new OakReader("a: 1; b: 2;");
+		while(reader.next() != Event.END_DOCUMENT) {
+			// Keep reading
+		}
+	}
+
+	@Test
+	public void testToObjectTree() throws OakException {
+		final String string = ""
+				+ "Person {\n"
+				+ "	userId: john;\n"
+				+ "	Email [{\n"
+				+ "		text: \"john@work.com\";\n"
+				+ "		isHome: false;\n"
+				+ "	},{\n"
+				+ "		text: \"john@home.com\";\n"
+				+ "		isHome: true;\n"
+				+ "	}]\n"
+				+ "}";
+		final Person expected = new Oak(string).toObjectTree(PersonDialect.rulebase);
+		final Person person = new OakReader(string).toObjectTree(PersonDialect.rulebase);
+		assertEquals(expected.toString(), person.toString());
+		assertEquals(2, person.emails.size());
+	}
+
+	@Test(expected = OakException.class)
+	public void testToObjectTreeDialectError() throws OakException {
+		new OakReader("Person { userId: 42; }").toObjectTree(PersonDialect.rulebase);
+	}
+
+	@Test
+	public void testToObjectTreeMembers() throws OakException {
+		// Members in a different order to the constructor parameters...
+		final Person person = new OakReader(""
+				+ "Person { Email [{ isHome: true; text: \"a@b.com\"; }] userId: john; }")
+				.toObjectTree(PersonDialect.rulebase);
+		assertEquals("john", person.userId.toString());
+		assertEquals("a@b.com", person.emails.get(0).text);
+
+		try {
+			new OakReader("Person { userId: john; userId: jane; }").toObjectTree(PersonDialect.rulebase);
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Redefinition of value for: userId") >= 0);
+		}
+
+		try {
+			new OakReader("Person { Email [{ text: \"a@b.com\"; isHome: true; }] }")
+					.toObjectTree(PersonDialect.rulebase);
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Need 1..1 userId(s) in Person") >= 0);
+		}
+	}
+
+	@Test
+	public void testListPropertyConstraint() throws OakException {
+		final Rulebase rulebase;
+		final Advisory advisory = new Advisory("Unit test");
+		TadContext.pushAttach(advisory);
+		try {
+			final ObjectRule tags = new ObjectRule(new Identifier("Tags"), Tags.class, true);
+			tags.setRelationships(new Relationship(
+					new PropertyRule(new Identifier("tags"), DataType.text, new RegexConstraint((Object)"[a-z]+")),
+					Cardinality.newInstance("1..*"),
+					CollectionType.list));
+			rulebase = new Rulebase(new Identifier("Tagging"), new ObjectRule[] { tags });
+		} finally {
+			TadContext.detach(advisory);
+		}
+		assertFalse(advisory.hasErrors());
+
+		final String valid = "Tags { tags [ \"a\", \"bc\" ] }";
+		final Tags expected = new Oak(valid).toObjectTree(rulebase);
+		assertEquals(2, expected.tags.size());
+		assertEquals(expected.tags, new OakReader(valid).<Tags> toObjectTree(rulebase).tags);
+
+		// Each member of the list is checked against the property's constraint
+		final String invalid = "Tags { tags [ \"a\", \"b2\" ] }";
+		try {
+			new Oak(invalid).toObjectTree(rulebase);
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Invalid value for regex constraint") >= 0);
+		}
+		try {
+			new OakReader(invalid).toObjectTree(rulebase);
+			fail();
+		} catch(final OakException e) {
+			assertTrue(e.getMessage().indexOf("Invalid value for regex constraint") >= 0);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.inexas.oak.advisory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class TestAdvisory {
+
+	private Locus newLocus(int line, int column) {
+		final Locus result = new Locus.Base();
+		result.setSourcePosition(line, column);
+		return result;
+	}
+
+	private static class Template {
+		@Override
+		public boolean equals(Object rhs) {
+			// Equal to every other Template so lookups must be by identity
+			return rhs instanceof Template;
+		}
+
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+	}
+
+	@Test
+	public void testAssociate() {
+		final Advisory advisory = new Advisory("Unit test");
+		final Template a = new Template();
+		final Template b = new Template();
+		final Locus aLocus = newLocus(1, 2);
+		final Locus bLocus = newLocus(3, 4);
+		advisory.associate(aLocus, a);
+		advisory.associate(bLocus, b);
+		advisory.associate(newLocus(5, 6), a);
+
+		advisory.error(b, "b");
+		advisory.error(a, "a");
+		advisory.error(new Template(), "unknown");
+		assertEquals(3, advisory.getErrorCount());
+		final String errors = advisory.toString();
+		assertTrue(errors.indexOf("(String input): unknown") > 0);
+		assertTrue(errors.indexOf("(String input):" + aLocus.getLine() + " a") > 0);
+		assertTrue(errors.indexOf("(String input):" + bLocus.getLine() + " b") > 0);
+	}
+
+	@Test
+	public void testNotRegistering() {
+		final Advisory advisory = new Advisory("Unit test");
+		final Object object = new Object();
+		advisory.associate(newLocus(1, 2), object);
+		assertTrue(advisory.isRegistering());
+
+		advisory.setRegistering(false);
+		assertFalse(advisory.isRegistering());
+		advisory.associate(newLocus(3, 4), object);
+		advisory.error(object, "Error");
+		assertEquals(1, advisory.getErrorCount());
+		assertTrue(advisory.toString().indexOf("(String input): Error") > 0);
+
+		advisory.setRegistering(true);
+		assertTrue(advisory.isRegistering());
+	}
+}
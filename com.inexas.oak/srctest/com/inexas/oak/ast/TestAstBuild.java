@@ -53,6 +53,19 @@ public class TestAstBuild {
 		expectException("Syntax error", " \t\n // asdf\n/*Crap*/");
 	}
 
+	@Test
+	public void testSyntaxErrorReportedByLlStage() {
+		// The SLL stage bails out silently, the LL stage must report the error
+		try {
+			new Oak("a {\n\tb: 1 + ;\n}");
+			fail();
+		} catch(final OakException e) {
+			final Advisory advisory = e.getAdvisory();
+			assertEquals(1, advisory.getErrorCount());
+			assertTrue(advisory.getFirstError(), advisory.getFirstError().indexOf("Syntax error") >= 0);
+		}
+	}
+
 	@Test
 	public void testNoDiactlect() throws OakException {
 		doTest("A{b:true;}", "A{b;}");
@@ -0,0 +1,95 @@
+package com.inexas.oak.ast;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Test;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.OakException;
+
+public class TestFileInput {
+
+	private File write(byte[] bytes) throws IOException {
+		final File result = File.createTempFile("test", ".oak");
+		result.deleteOnExit();
+		try(final OutputStream out = new FileOutputStream(result)) {
+			out.write(bytes);
+		}
+		return result;
+	}
+
+	private File write(String string) throws IOException {
+		return write(string.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testUtf8() throws Exception {
+		final String string = "name: \"Zürich € 😀\";";
+		final File file = write(string);
+
+		final ANTLRInputStream stream = FileInput.map(file);
+		assertEquals(string.length(), stream.size());
+		assertEquals(string, stream.getText(Interval.of(0, stream.size() - 1)));
+
+		new Oak(file);
+
+		try(final OakReader reader = new OakReader(file)) {
+			assertEquals(OakReader.Event.NAME, reader.next());
+			assertEquals(OakReader.Event.VALUE, reader.next());
+			assertEquals("Zürich € 😀", reader.getValue());
+		}
+	}
+
+	@Test
+	public void testMultiByte() throws Exception {
+		// Two and three byte characters so the array is larger than the content
+		final StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 1_000; i++) {
+			sb.append("ü日");
+		}
+		final String string = "name: \"" + sb + "\";";
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		assertTrue(bytes.length > string.length());
+
+		final ANTLRInputStream stream = FileInput.map(write(bytes));
+		assertEquals(string.length(), stream.size());
+		assertEquals(string, stream.getText(Interval.of(0, stream.size() - 1)));
+
+		// Nothing past the decoded characters is read
+		stream.seek(stream.size() - 1);
+		assertEquals(';', stream.LA(1));
+		stream.consume();
+		assertEquals(ANTLRInputStream.EOF, stream.LA(1));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		assertEquals(0, FileInput.map(write("")).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidUtf8() throws Exception {
+		FileInput.map(write(new byte[] { 'a', ':', (byte)0xc3, (byte)0x28, ';' }));
+	}
+
+	@Test(expected = OakException.class)
+	public void testOakInvalidUtf8() throws Exception {
+		new Oak(write(new byte[] { 'a', ':', '"', (byte)0xff, '"', ';' }));
+	}
+
+	@Test(expected = OakException.class)
+	public void testOakReaderInvalidUtf8() throws Exception {
+		try(final OakReader reader = new OakReader(write(new byte[] { 'a', ':', '"', (byte)0xff, '"', ';' }))) {
+			while(reader.next() != OakReader.Event.END_DOCUMENT) {
+				// Keep reading
+			}
+		}
+	}
+
+	@Test(expected = OakException.class)
+	public void testFileNotFound() throws Exception {
+		new Oak(new File("no/such/file.oak"));
+	}
+}
@@ -107,4 +107,62 @@ public class TestLibrary {
 		assertEquals(DataType.text, node.getType());
 		assertEquals("6", node.getString());
 	}
+
+	@Test
+	public void testCache() throws LibraryException, InvalidMethodException {
+		final LibraryRegistry register = new LibraryRegistry();
+		final TestFunclib5 library = new TestFunclib5();
+		register.register(library);
+		final FunctionCache cache = register.getCache("square", DataType.z);
+		assertEquals(2, cache.getSize());
+
+		final Function square = register.map.get("square:1")[0];
+		assertEquals(new Integer(9), square.invoke(null, new Object[] { new Integer(3) }).getValue());
+		assertEquals(new Integer(9), square.invoke(null, new Object[] { new Integer(3) }).getValue());
+		assertEquals(1, library.calls);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// Least recently used is evicted...
+		square.invoke(null, new Object[] { new Integer(4) });
+		square.invoke(null, new Object[] { new Integer(3) });
+		square.invoke(null, new Object[] { new Integer(5) });
+		assertEquals(3, library.calls);
+		assertEquals(2, cache.getCount());
+		assertEquals(1, cache.getEvictions());
+		square.invoke(null, new Object[] { new Integer(3) });
+		assertEquals(3, library.calls);
+		square.invoke(null, new Object[] { new Integer(4) });
+		assertEquals(4, library.calls);
+
+		cache.clear();
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testCacheTtl() throws LibraryException, InvalidMethodException, InterruptedException {
+		final LibraryRegistry register = new LibraryRegistry();
+		final TestFunclib5 library = new TestFunclib5();
+		register.register(library);
+		final Function expiring = register.map.get("expiring:1")[0];
+		expiring.invoke(null, new Object[] { "a" });
+		Thread.sleep(5);
+		expiring.invoke(null, new Object[] { "a" });
+		assertEquals(2, library.calls);
+		assertEquals(1, register.getCache("expiring", DataType.text).getEvictions());
+	}
+
+	@Test
+	public void testUncached() throws LibraryException, InvalidMethodException {
+		final LibraryRegistry register = new LibraryRegistry();
+		register.register(new TestFunclib());
+		assertNull(register.getCache("intInt", DataType.z, DataType.z));
+	}
+
+	@Test(expected = InvalidMethodException.class)
+	public void testDynamicCache() throws LibraryException, InvalidMethodException {
+		final LibraryRegistry register = new LibraryRegistry();
+		register.register(new TestFunclib6());
+	}
 }
@@ -0,0 +1,28 @@
+package com.inexas.oak.ast.testlibs;
+
+import com.inexas.oak.Library;
+import com.inexas.oak.ast.Function;
+
+public class TestFunclib5 implements Library {
+	public int calls;
+
+	@Function(cacheSize = 2)
+	public int square(int x) {
+		calls++;
+		return x * x;
+	}
+
+	@Function(cacheSize = 10, cacheTtl = 1)
+	public String expiring(String s) {
+		calls++;
+		return s;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object resolve(String identifier) {
+		return UNRESOLVED;
+	}
+}
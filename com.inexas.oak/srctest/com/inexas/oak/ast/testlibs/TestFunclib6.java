@@ -0,0 +1,20 @@
+package com.inexas.oak.ast.testlibs;
+
+import com.inexas.oak.Library;
+import com.inexas.oak.ast.Function;
+
+public class TestFunclib6 implements Library {
+
+	@Function(dynamic = true, cacheSize = 10)
+	public int f() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object resolve(String identifier) {
+		return UNRESOLVED;
+	}
+}
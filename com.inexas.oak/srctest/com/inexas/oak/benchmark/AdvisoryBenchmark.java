@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import com.inexas.oak.advisory.*;
+
+/**
+ * Time associating 100,000 template objects with their position in the
+ * source and then reporting an error against one in ten of them, as
+ * validating a large document with many errors does, with and without the
+ * positions being kept.
+ */
+public class AdvisoryBenchmark {
+	private final static int OBJECTS = 100_000;
+	private final static int ITERATIONS = 3;
+
+	public static void main(String[] args) throws Exception {
+		final Object[] objects = new Object[OBJECTS];
+		final Locus[] loci = new Locus[OBJECTS];
+		for(int i = 0; i < OBJECTS; i++) {
+			objects[i] = new Object();
+			loci[i] = new Locus.Base();
+			loci[i].setSourcePosition(i, 0);
+		}
+
+		run("Registering", true, objects, loci);
+		run("Not registering", false, objects, loci);
+	}
+
+	private static void run(String label, boolean registering, Object[] objects, Locus[] loci)
+			throws Exception {
+		final double time = Benchmark.time(label, ITERATIONS, () -> {
+			final Advisory advisory = new Advisory("Benchmark");
+			advisory.setRegistering(registering);
+			for(int i = 0; i < OBJECTS; i++) {
+				advisory.associate(loci[i], objects[i]);
+			}
+			for(int i = OBJECTS - 1; i >= 0; i -= 10) {
+				advisory.error(objects[i], "Error");
+			}
+		});
+		System.out.printf("%-40s %12.1f ms per document%n", label, new Double(time / 1e6));
+	}
+}
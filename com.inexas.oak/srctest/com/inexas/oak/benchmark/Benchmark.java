@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Minimal timing harness for the benchmarks in this package. Each run is
+ * warmed up first so that the JIT has had a chance to compile the code under
+ * test, then timed over a number of rounds and the best round reported.
+ */
+public class Benchmark {
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private final static int WARMUP_ROUNDS = 5;
+	private final static int ROUNDS = 10;
+
+	/**
+	 * Time a task and print the result.
+	 *
+	 * @param label
+	 *            Label to print with the result.
+	 * @param iterations
+	 *            How many times the task is run in each round.
+	 * @param task
+	 *            The task to time.
+	 * @return The best time per iteration in nanoseconds.
+	 * @throws Exception
+	 *             Passed on from the task.
+	 */
+	public static double time(String label, int iterations, Task task) throws Exception {
+		for(int round = 0; round < WARMUP_ROUNDS; round++) {
+			for(int i = 0; i < iterations; i++) {
+				task.run();
+			}
+		}
+
+		long best = Long.MAX_VALUE;
+		for(int round = 0; round < ROUNDS; round++) {
+			final long start = System.nanoTime();
+			for(int i = 0; i < iterations; i++) {
+				task.run();
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		final double result = (double)best / iterations;
+		System.out.printf("%-40s %12.1f ns/op%n", label, new Double(result));
+
+		return result;
+	}
+
+	/**
+	 * Measure the heap allocated by a task and print the result. This relies on
+	 * the HotSpot extension of ThreadMXBean.
+	 *
+	 * @param label
+	 *            Label to print with the result.
+	 * @param iterations
+	 *            How many times the task is run.
+	 * @param task
+	 *            The task to measure.
+	 * @return The bytes allocated per iteration.
+	 * @throws Exception
+	 *             Passed on from the task.
+	 */
+	public static double allocated(String label, int iterations, Task task) throws Exception {
+		final com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+
+		// Warm up so we measure the compiled code, not the interpreter
+		for(int round = 0; round < WARMUP_ROUNDS; round++) {
+			for(int i = 0; i < iterations; i++) {
+				task.run();
+			}
+		}
+
+		final long start = bean.getThreadAllocatedBytes(threadId);
+		for(int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		final long allocated = bean.getThreadAllocatedBytes(threadId) - start;
+
+		final double result = (double)allocated / iterations;
+		System.out.printf("%-40s %12.1f bytes/op%n", label, new Double(result));
+
+		return result;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.util.Random;
+import com.inexas.oak.*;
+
+/**
+ * Compare rows/second for a filter and a derived column evaluated row by row
+ * with evaluate(Bindings) against evaluating the whole batch a column at a
+ * time.
+ */
+public class ColumnarEvaluationBenchmark {
+	private final static int ROWS = 10_000;
+	private static long sink;
+
+	public static void main(String[] args) throws Exception {
+		final Variables variables = new Variables()
+				.declare("price", DataType.f)
+				.declare("quantity", DataType.z)
+				.declare("discount", DataType.f);
+		final Expression filter = new Expression("price * quantity > 100.0 && quantity < 50", variables);
+		final Expression derived = new Expression("price * quantity * (1.0 - discount)", variables);
+
+		final Random random = new Random(42);
+		final float[] prices = new float[ROWS];
+		final int[] quantities = new int[ROWS];
+		final float[] discounts = new float[ROWS];
+		for(int row = 0; row < ROWS; row++) {
+			prices[row] = random.nextFloat() * 20;
+			quantities[row] = random.nextInt(100);
+			discounts[row] = random.nextFloat() / 4;
+		}
+		final Columns columns = new Columns(variables, ROWS);
+		columns.setFloats(0, prices);
+		columns.setInts(1, quantities);
+		columns.setFloats(2, discounts);
+		final Bindings bindings = new Bindings(variables);
+
+		report(Benchmark.time("filter: evaluate(Bindings)", 10, () -> {
+			for(int row = 0; row < ROWS; row++) {
+				columns.bind(row, bindings);
+				if(((Boolean)filter.evaluate(bindings).getValue()).booleanValue()) {
+					sink++;
+				}
+			}
+		}));
+		report(Benchmark.time("filter: evaluateBooleans(Columns)", 10, () -> {
+			sink += filter.evaluateBooleans(columns)[0];
+		}));
+		report(Benchmark.time("derived: evaluate(Bindings)", 10, () -> {
+			for(int row = 0; row < ROWS; row++) {
+				columns.bind(row, bindings);
+				sink += ((Float)derived.evaluate(bindings).getValue()).longValue();
+			}
+		}));
+		report(Benchmark.time("derived: evaluateFloats(Columns)", 10, () -> {
+			sink += (long)derived.evaluateFloats(columns)[0];
+		}));
+
+		System.out.println(sink == 42 ? "" : "Done");
+	}
+
+	private static void report(double nanosPerBatch) {
+		System.out.printf("%-40s %12.0f rows/s%n", "", new Double(ROWS * 1e9 / nanosPerBatch));
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import com.inexas.oak.*;
+import com.inexas.oak.ast.*;
+
+/**
+ * Compare tree-walking evaluation of an expression with evaluation of the
+ * compiled form. The expression uses a dynamic function so that nothing is
+ * folded away when the expression is parsed.
+ */
+public class CompiledExpressionBenchmark {
+	public static class BenchmarkFuncLib implements Library {
+		private int counter;
+
+		@Function(dynamic = true)
+		public int next() {
+			return counter++ & 0xff;
+		}
+
+		@Override
+		public Object resolve(String identifier) {
+			return UNRESOLVED;
+		}
+	}
+
+	private final static int ITERATIONS = 100_000;
+	private static int sink;
+
+	public static void main(String[] args) throws Exception {
+		final String source = "(next() * 3 + 7) % 11 > 4 && next() - 2 < 100 ? next() << 2 : -next()";
+		final Expression expression = new Expression(source, new BenchmarkFuncLib());
+		final CompiledExpression compiled = expression.compile();
+
+		Benchmark.time("interpreted", ITERATIONS, () -> {
+			sink += ((Integer)expression.evaluate().getValue()).intValue();
+		});
+		Benchmark.time("compiled", ITERATIONS, () -> {
+			sink += compiled.evaluateInt();
+		});
+
+		System.out.println(sink == 42 ? "" : "Done");
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.antlr.v4.runtime.*;
+import com.inexas.oak.ast.FileInput;
+
+/**
+ * Compare the time and peak resident set size needed to load a file into the
+ * lexer's CharStream by reading it through a FileReader, as AbstractOak used
+ * to, and by mapping it and decoding it as UTF-8 with FileInput.
+ *
+ * Each measurement is made in a new JVM so that the peak RSS, read from
+ * /proc/self/status, belongs to that approach alone. Linux only.
+ *
+ * Usage: FileInputBenchmark [megabytes...], the default is 10 100 1000.
+ */
+public class FileInputBenchmark {
+	private final static String[] DEFAULT_SIZES = { "10", "100", "1000" };
+
+	public static void main(String[] args) throws Exception {
+		if(args.length == 2 && (args[0].equals("reader") || args[0].equals("mapped"))) {
+			measure(args[0], new File(args[1]));
+		} else {
+			for(final String megabytes : args.length == 0 ? DEFAULT_SIZES : args) {
+				final File file = File.createTempFile("benchmark", ".oak");
+				try {
+					generate(file, Long.parseLong(megabytes) * 1024L * 1024L);
+					System.out.printf("%s MB:%n", megabytes);
+					fork("reader", file);
+					fork("mapped", file);
+				} finally {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	private static void fork(String mode, File file) throws Exception {
+		final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		final List<String> command = new ArrayList<>();
+		command.add(java);
+		command.add("-Xmx4g");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(FileInputBenchmark.class.getName());
+		command.add(mode);
+		command.add(file.getPath());
+		final Process process = new ProcessBuilder(command).inheritIO().start();
+		if(process.waitFor() != 0) {
+			System.out.printf("  %-8s failed%n", mode);
+		}
+	}
+
+	private static void measure(String mode, File file) throws Exception {
+		final long start = System.nanoTime();
+		final CharStream stream;
+		if(mode.equals("reader")) {
+			try(final Reader reader = new FileReader(file)) {
+				stream = new ANTLRInputStream(reader);
+			}
+		} else {
+			stream = FileInput.map(file);
+		}
+		final long time = System.nanoTime() - start;
+
+		System.out.printf("  %-8s %10.1f ms %8.1f MB peak RSS (%d chars)%n",
+				mode,
+				new Double(time / 1e6),
+				new Double(peakRss() / 1024.),
+				new Integer(stream.size()));
+	}
+
+	/**
+	 * @return The peak resident set size in kB.
+	 */
+	private static long peakRss() throws IOException {
+		long result = -1;
+
+		for(final String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+			if(line.startsWith("VmHWM:")) {
+				result = Long.parseLong(line.replaceAll("[^0-9]", ""));
+			}
+		}
+
+		return result;
+	}
+
+	private static void generate(File file, long size) throws IOException {
+		try(final Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("Root {\n\tItem [");
+			long written = 0;
+			int i = 0;
+			while(written < size) {
+				final String item = (i > 0 ? "," : "")
+						+ "{\n\t\tname: \"item" + i + " – Zürich\";\n\t\tcount: " + i + ";\n\t}";
+				writer.write(item);
+				written += item.length();
+				i++;
+			}
+			writer.write("]\n}\n");
+		}
+	}
+}
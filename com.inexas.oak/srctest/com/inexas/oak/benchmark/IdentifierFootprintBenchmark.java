@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.util.Arrays;
+import com.inexas.oak.Identifier;
+
+/**
+ * Measure the heap retained by 1M Identifiers of 6, 12 and 24 characters and
+ * time equals() and compareTo() between copies.
+ */
+public class IdentifierFootprintBenchmark {
+	private final static int COUNT = 1_000_000;
+	private final static int ITERATIONS = 20;
+	private static int result;
+
+	public static void main(String[] args) throws Exception {
+		run("userId");
+		run("customerName");
+		run("shippingAddressLineThree");
+	}
+
+	private static void run(String name) throws Exception {
+		final Identifier[] identifiers = new Identifier[COUNT];
+		final long before = used();
+		for(int i = 0; i < COUNT; i++) {
+			identifiers[i] = new Identifier(name);
+		}
+		final long after = used();
+		System.out.printf("%-40s %12.1f bytes/identifier%n",
+				name.length() + " characters",
+				new Double((double)(after - before) / COUNT));
+
+		// Sorted copies so compareTo() has to look at every character
+		final Identifier[] copies = Arrays.copyOf(identifiers, 1_000);
+		for(int i = 0; i < copies.length; i++) {
+			copies[i] = new Identifier(name);
+		}
+		Benchmark.time(name.length() + " characters, equals()", ITERATIONS, () -> {
+			for(int i = 1; i < copies.length; i++) {
+				if(copies[i].equals(copies[i - 1])) {
+					result++;
+				}
+			}
+		});
+		Benchmark.time(name.length() + " characters, compareTo()", ITERATIONS, () -> {
+			for(int i = 1; i < copies.length; i++) {
+				result += copies[i].compareTo(copies[i - 1]);
+			}
+		});
+		if(identifiers[COUNT - 1] == null) {
+			throw new RuntimeException();
+		}
+	}
+
+	private static long used() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
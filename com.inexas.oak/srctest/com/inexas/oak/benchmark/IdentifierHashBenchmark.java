@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.util.*;
+import com.inexas.oak.Identifier;
+
+/**
+ * Time filling and then probing a HashMap keyed by Identifiers, as
+ * AstToTemplateTree and Oak do with member names and map keys, and count how
+ * many distinct hash codes the keys have.
+ */
+public class IdentifierHashBenchmark {
+	private final static int ITERATIONS = 20;
+
+	public static void main(String[] args) throws Exception {
+		run("80 member names", names("member", 80), 2_000);
+		run("10,000 map keys", names("key", 10_000), 20);
+	}
+
+	private static Identifier[] names(String prefix, int count) {
+		final Identifier[] result = new Identifier[count];
+		for(int i = 0; i < count; i++) {
+			result[i] = new Identifier(prefix + i);
+		}
+		return result;
+	}
+
+	private static void run(String label, Identifier[] keys, int repeat) throws Exception {
+		final Set<Integer> hashCodes = new HashSet<>();
+		// Copies, as a parser would produce, so equals() can't short cut
+		final Identifier[] probes = new Identifier[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			hashCodes.add(new Integer(keys[i].hashCode()));
+			probes[i] = new Identifier(keys[i].toString());
+		}
+		System.out.printf("%s: %d distinct hash codes%n", label, new Integer(hashCodes.size()));
+
+		Benchmark.time(label + ", put and get", ITERATIONS, () -> {
+			for(int r = 0; r < repeat; r++) {
+				final Map<Identifier, Identifier> map = new HashMap<>();
+				for(final Identifier key : keys) {
+					map.put(key, key);
+				}
+				for(final Identifier probe : probes) {
+					if(map.get(probe) == null) {
+						throw new RuntimeException("Missing: " + probe);
+					}
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import com.inexas.oak.Oak;
+import com.inexas.oak.examples.*;
+
+/**
+ * Compare loading a directory of small files one at a time on a single thread
+ * with Oak.loadAll() on the common ForkJoinPool.
+ */
+public class LoadAllBenchmark {
+	private final static int FILES = 2_000;
+	private final static int ITERATIONS = 1;
+
+	public static void main(String[] args) throws Exception {
+		final Path directory = Files.createTempDirectory("benchmark");
+		try {
+			for(int i = 0; i < FILES; i++) {
+				final StringBuilder sb = new StringBuilder();
+				sb.append("Person {\n\tuserId: u" + i + ";\n\tEmail [");
+				for(int j = 0; j < 20; j++) {
+					sb.append(j == 0 ? "{" : ",{");
+					sb.append("\n\t\ttext: \"u" + i + '.' + j + "@example.com\";\n\t\tisHome: false;\n\t}");
+				}
+				sb.append("]\n}\n");
+				Files.write(directory.resolve("p" + i + ".oak"), sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			System.out.printf("%d files, %d threads%n",
+					new Integer(FILES),
+					new Integer(ForkJoinPool.commonPool().getParallelism()));
+
+			final double sequential = Benchmark.time("new Oak(file) in a loop", ITERATIONS, () -> {
+				try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+					for(final Path path : stream) {
+						final Person person = new Oak(path.toFile()).toObjectTree(PersonDialect.rulebase);
+						if(person == null) {
+							throw new RuntimeException();
+						}
+					}
+				}
+			});
+			final double parallel = Benchmark.time("Oak.loadAll()", ITERATIONS, () -> {
+				if(Oak.loadAll(directory, PersonDialect.rulebase, ForkJoinPool.commonPool()).size() != FILES) {
+					throw new RuntimeException();
+				}
+			});
+			System.out.printf("Speed up %.1fx%n", new Double(sequential / parallel));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for(final Path path : stream) {
+				Files.delete(path);
+			}
+		}
+		Files.delete(directory);
+	}
+}
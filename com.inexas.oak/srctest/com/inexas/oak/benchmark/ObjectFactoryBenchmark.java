@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.util.*;
+import com.inexas.oak.Identifier;
+import com.inexas.oak.advisory.Advisory;
+import com.inexas.oak.dialect.*;
+import com.inexas.oak.examples.Email;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.tad.TadContext;
+
+/**
+ * Compare the ways a template object can be constructed, 1M Emails and 1M
+ * Persons each way: Constructor.newInstance() as ObjectRule used to,
+ * ObjectRule.construct() through the factory spun from its MethodHandle, as
+ * for dialects loaded at runtime, and ObjectRule.construct() with the factory
+ * set by the generated dialect class.
+ */
+public class ObjectFactoryBenchmark {
+	private final static int ITERATIONS = 1_000_000;
+
+	public static void main(String[] args) throws Exception {
+		// PersonDialect's rules have factories, a snapshot of them does not
+		final Rulebase generated = PersonDialect.rulebase;
+		final Rulebase loaded;
+		final Advisory advisory = new Advisory("Benchmark");
+		TadContext.pushAttach(advisory);
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			RulebaseSnapshot.write(generated, out);
+			loaded = RulebaseSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+		} finally {
+			TadContext.detach(advisory);
+		}
+
+		final Object[] emailParameters = { "john@example.com", Boolean.TRUE };
+		final Object[] personParameters = {
+				new Identifier("john"),
+				Collections.singletonList(new Email("john@example.com", Boolean.TRUE)) };
+		run("Email", Email.class.getConstructor(String.class, Boolean.class),
+				loaded.rules[0], generated.rules[0], emailParameters);
+		run("Person", Person.class.getConstructor(Identifier.class, List.class),
+				loaded.rules[1], generated.rules[1], personParameters);
+	}
+
+	private static void run(
+			String name,
+			Constructor<?> constructor,
+			ObjectRule loaded,
+			ObjectRule generated,
+			Object[] parameters) throws Exception {
+		final double reflection = Benchmark.time(name + " Constructor.newInstance()", ITERATIONS, () -> {
+			constructor.newInstance(parameters);
+		});
+		final double handle = Benchmark.time(name + " construct() MethodHandle", ITERATIONS, () -> {
+			loaded.construct(parameters);
+		});
+		final double factory = Benchmark.time(name + " construct() generated", ITERATIONS, () -> {
+			generated.construct(parameters);
+		});
+		System.out.printf("%s: MethodHandle %.1fx, generated factory %.1fx faster than reflection%n",
+				name,
+				new Double(reflection / handle),
+				new Double(reflection / factory));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.io.*;
+import java.lang.management.*;
+import com.inexas.oak.*;
+import com.inexas.oak.examples.*;
+
+/**
+ * Compare the time and peak heap needed to build an object tree from a large
+ * file using the three stage parse tree, AST, object tree pipeline of the Oak
+ * class and the direct construction from events of the OakReader.
+ *
+ * The size of the document in megabytes may be given as the first argument,
+ * e.g. 100, run with a heap large enough for the Oak pipeline to complete.
+ */
+public class ObjectTreeBenchmark {
+	private final static int DEFAULT_MEGABYTES = 10;
+	private final static int ROUNDS = 3;
+
+	private interface Build {
+		Person build(File file) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MEGABYTES;
+		final File file = File.createTempFile("benchmark", ".person");
+		file.deleteOnExit();
+		final int emails = generate(file, megabytes * 1024L * 1024L);
+		System.out.printf("Document: %d emails, %.1f MB%n",
+				new Integer(emails),
+				new Double(file.length() / (1024. * 1024.)));
+
+		run("Oak (parse tree, AST, objects)", file, f -> new Oak(f).toObjectTree(PersonDialect.rulebase));
+		run("OakReader (direct to objects)", file, f -> {
+			try(final OakReader reader = new OakReader(f)) {
+				return reader.toObjectTree(PersonDialect.rulebase);
+			}
+		});
+	}
+
+	private static void run(String label, File file, Build build) throws Exception {
+		long bestTime = Long.MAX_VALUE;
+		long bestPeak = Long.MAX_VALUE;
+		for(int round = 0; round < ROUNDS; round++) {
+			System.gc();
+			for(final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				pool.resetPeakUsage();
+			}
+			final long start = System.nanoTime();
+			final Person person = build.build(file);
+			final long time = System.nanoTime() - start;
+			long peak = 0;
+			for(final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if(pool.getType() == MemoryType.HEAP) {
+					peak += pool.getPeakUsage().getUsed();
+				}
+			}
+			if(person.emails.isEmpty()) {
+				throw new RuntimeException("No emails read");
+			}
+			bestTime = Math.min(bestTime, time);
+			bestPeak = Math.min(bestPeak, peak);
+		}
+		System.out.printf("%-40s %10.1f ms %10.1f MB peak heap%n",
+				label,
+				new Double(bestTime / 1e6),
+				new Double(bestPeak / (1024. * 1024.)));
+	}
+
+	/**
+	 * Write a Person with enough Emails to make the file the given size.
+	 *
+	 * @return The number of Emails written.
+	 */
+	private static int generate(File file, long size) throws IOException {
+		int result = 0;
+
+		try(final Writer writer = new BufferedWriter(new FileWriter(file))) {
+			writer.write("Person {\n\tuserId: john;\n\tEmail [");
+			long written = 0;
+			while(written < size) {
+				final String email = (result > 0 ? "," : "")
+						+ "{\n\t\ttext: \"john" + result + "@example.com\";\n"
+						+ "\t\tisHome: " + (result % 2 == 0) + ";\n\t}";
+				writer.write(email);
+				written += email.length();
+				result++;
+			}
+			writer.write("]\n}\n");
+		}
+
+		return result;
+	}
+}
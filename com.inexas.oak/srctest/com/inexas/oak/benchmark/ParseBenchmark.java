@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import com.inexas.oak.Oak;
+import com.inexas.oak.ast.*;
+import com.inexas.util.Text;
+
+/**
+ * Compare the parse throughput of a large Oak document using full LL
+ * prediction and the SLL with bail out that AbstractOak tries first. Valid
+ * input never needs the LL second stage so the SLL figure is what a successful
+ * parse costs. The end-to-end Oak figure includes building the AST.
+ */
+public class ParseBenchmark {
+	private final static int OBJECTS = 2_000;
+	private final static int ITERATIONS = 5;
+
+	public static void main(String[] args) throws Exception {
+		final String oak = generate(OBJECTS);
+		final double megabytes = oak.length() / (1024. * 1024.);
+		System.out.printf("Document: %d objects, %.2f MB%n", new Integer(OBJECTS), new Double(megabytes));
+
+		final double ll = Benchmark.time("full LL", ITERATIONS, () -> {
+			parse(oak, PredictionMode.LL);
+		});
+		final double sll = Benchmark.time("SLL with bail out", ITERATIONS, () -> {
+			parse(oak, PredictionMode.SLL);
+		});
+		final double twoStage = Benchmark.time("new Oak(String)", ITERATIONS, () -> {
+			new Oak(oak);
+		});
+
+		System.out.printf("full LL  %8.2f MB/s%n", new Double(megabytes / (ll / 1e9)));
+		System.out.printf("SLL      %8.2f MB/s%n", new Double(megabytes / (sll / 1e9)));
+		System.out.printf("Oak      %8.2f MB/s (includes AST construction)%n", new Double(megabytes / (twoStage / 1e9)));
+	}
+
+	private static void parse(String string, PredictionMode mode) {
+		final OakLexer lexer = new OakLexer(new ANTLRInputStream(string));
+		final OakParser parser = new OakParser(new CommonTokenStream(lexer));
+		parser.removeErrorListeners();
+		parser.getInterpreter().setPredictionMode(mode);
+		if(mode == PredictionMode.SLL) {
+			// As AbstractOak's first stage, this would throw if SLL wasn't enough
+			parser.setErrorHandler(new BailErrorStrategy());
+		}
+		parser.oak();
+	}
+
+	/**
+	 * Generate a document with lots of expressions as they're the expensive
+	 * part to predict.
+	 */
+	static String generate(int objects) {
+		final Text t = new Text();
+		t.append("Root {\n");
+		t.append("\tItem [");
+		for(int i = 0; i < objects; i++) {
+			if(i > 0) {
+				t.append(',');
+			}
+			t.append("{\n");
+			t.append("\t\tname: \"item" + i + "\";\n");
+			t.append("\t\tcount: " + i + ";\n");
+			t.append("\t\ttimeout: 60 * 60 * 1000 + " + i + " % 7;\n");
+			t.append("\t\tratio: (" + i + ".5 - 3) / 2.0 * -1.5;\n");
+			t.append("\t\tenabled: " + i + " > 10 && !(" + i + " % 3 = 0) || false;\n");
+			t.append("\t\tmask: 1 << 4 | 0x0f ^ ~" + i + " & 255;\n");
+			t.append("\t\tchoice: " + i + " < 5 ? 1 : 2;\n");
+			t.append("\t\tlist [ 1, 2, " + i + ", 4 * 5 ]\n");
+			t.append("\t}");
+		}
+		t.append("]\n");
+		t.append("}\n");
+		return t.toString();
+	}
+}
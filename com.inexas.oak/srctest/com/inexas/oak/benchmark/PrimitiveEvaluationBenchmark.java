@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import com.inexas.oak.*;
+import com.inexas.oak.ast.Function;
+
+/**
+ * Compare time and allocation of evaluate() with the primitive
+ * evaluateInt()/evaluateBoolean() entry points.
+ */
+public class PrimitiveEvaluationBenchmark {
+	public static class BenchmarkFuncLib implements Library {
+		private int counter;
+
+		@Function(dynamic = true)
+		public int next() {
+			return counter++ & 0xff;
+		}
+
+		@Override
+		public Object resolve(String identifier) {
+			return UNRESOLVED;
+		}
+	}
+
+	private final static int ITERATIONS = 100_000;
+	private static int sink;
+
+	public static void main(String[] args) throws Exception {
+		final BenchmarkFuncLib library = new BenchmarkFuncLib();
+		final Expression z = new Expression("(next() * 3 + 7) % 11 - (next() << 2)", library);
+		final Expression bool = new Expression("next() * 3 > 7 && next() % 2 = 0", library);
+
+		Benchmark.time("evaluate() z", ITERATIONS, () -> {
+			sink += ((Integer)z.evaluate().getValue()).intValue();
+		});
+		Benchmark.time("evaluateInt()", ITERATIONS, () -> {
+			sink += z.evaluateInt();
+		});
+		Benchmark.time("evaluate() bool", ITERATIONS, () -> {
+			sink += ((Boolean)bool.evaluate().getValue()).booleanValue() ? 1 : 0;
+		});
+		Benchmark.time("evaluateBoolean()", ITERATIONS, () -> {
+			sink += bool.evaluateBoolean() ? 1 : 0;
+		});
+
+		// Function calls allocate, this is everything else
+		Benchmark.allocated("evaluate() z", ITERATIONS, () -> {
+			sink += ((Integer)z.evaluate().getValue()).intValue();
+		});
+		Benchmark.allocated("evaluateInt()", ITERATIONS, () -> {
+			sink += z.evaluateInt();
+		});
+
+		// With variables instead of functions nothing should be allocated
+		final Variables variables = new Variables()
+				.declare("a", DataType.z)
+				.declare("b", DataType.z);
+		final Bindings bindings = new Bindings(variables);
+		final Expression bound = new Expression("(a * 3 + 7) % 11 - (b << 2)", variables);
+		Benchmark.allocated("evaluate(Bindings) z", ITERATIONS, () -> {
+			bindings.setInt(0, sink & 0xff);
+			bindings.setInt(1, sink & 0xf);
+			sink += ((Integer)bound.evaluate(bindings).getValue()).intValue();
+		});
+		Benchmark.allocated("evaluateInt(Bindings)", ITERATIONS, () -> {
+			bindings.setInt(0, sink & 0xff);
+			bindings.setInt(1, sink & 0xf);
+			sink += bound.evaluateInt(bindings);
+		});
+
+		System.out.println(sink == 42 ? "" : "Done");
+	}
+}
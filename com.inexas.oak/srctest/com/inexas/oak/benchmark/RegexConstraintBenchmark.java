@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.util.regex.Pattern;
+import com.inexas.oak.advisory.Advisory;
+import com.inexas.oak.dialect.RegexConstraint;
+import com.inexas.tad.TadContext;
+
+/**
+ * Validation throughput of a RegexConstraint with three alternative
+ * expressions against ids that match the last, compared with compiling the
+ * expressions for each value as RegexConstraint.validate() used to.
+ */
+public class RegexConstraintBenchmark {
+	private final static int IDS = 100_000;
+	private final static int ITERATIONS = 10;
+	private final static String[] REGEXS = {
+			"[A-Z]{2}-[0-9]{6}",
+			"[a-z]+_[0-9]+",
+			"id[0-9]{1,8}"
+	};
+
+	public static void main(String[] args) throws Exception {
+		final String[] ids = new String[IDS];
+		for(int i = 0; i < IDS; i++) {
+			ids[i] = "id" + i;
+		}
+
+		final Advisory advisory = new Advisory("Benchmark");
+		TadContext.pushAttach(advisory);
+		try {
+			final RegexConstraint constraint = new RegexConstraint((Object[])REGEXS);
+			final double compiling = Benchmark.time("Compile per value", ITERATIONS, () -> {
+				for(final String id : ids) {
+					for(final String regex : REGEXS) {
+						if(Pattern.compile(regex).matcher(id).matches()) {
+							break;
+						}
+					}
+				}
+			});
+			final double precompiled = Benchmark.time("RegexConstraint.validate()", ITERATIONS, () -> {
+				for(final String id : ids) {
+					constraint.validate(id);
+				}
+			});
+			if(advisory.hasErrors()) {
+				throw new RuntimeException(advisory.getFirstError());
+			}
+			System.out.printf("%-40s %12.0f values/s%n", "Compile per value", new Double(IDS * 1e9 / compiling));
+			System.out.printf("%-40s %12.0f values/s%n", "Precompiled", new Double(IDS * 1e9 / precompiled));
+		} finally {
+			TadContext.detach(advisory);
+		}
+	}
+}
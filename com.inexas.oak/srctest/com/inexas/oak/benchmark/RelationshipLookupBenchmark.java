@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.Advisory;
+import com.inexas.oak.dialect.*;
+import com.inexas.oak.examples.Email;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+/**
+ * Compare looking up every child of an object with 10, 40 and 80 members by
+ * scanning the child names, as ObjectRule.getRelationship() used to, with
+ * the hash index.
+ */
+public class RelationshipLookupBenchmark {
+	private final static int ITERATIONS = 200_000;
+	private static int found;
+
+	public static void main(String[] args) throws Exception {
+		final Advisory advisory = new Advisory("Benchmark");
+		TadContext.pushAttach(advisory);
+		try {
+			run(10);
+			run(40);
+			run(80);
+		} finally {
+			TadContext.detach(advisory);
+		}
+	}
+
+	private static void run(int memberCount) throws Exception {
+		final Relationship[] relationships = new Relationship[memberCount];
+		final Identifier[] names = new Identifier[memberCount];
+		for(int i = 0; i < memberCount; i++) {
+			final PropertyRule property = new PropertyRule(new Identifier("member" + i), DataType.text);
+			relationships[i] = new Relationship(property, Cardinality.newInstance("0..1"), CollectionType.singleton);
+			// Copies, as a parser would produce, so equals() can't short cut
+			names[i] = new Identifier("member" + i);
+		}
+		// The template class doesn't matter, only the relationships are used
+		final ObjectRule rule = new ObjectRule(new Identifier("O"), Email.class, true);
+		rule.setRelationships(relationships);
+		final Identifier[] childNames = rule.getChildNames();
+
+		Benchmark.time(memberCount + " members, linear scan", ITERATIONS, () -> {
+			for(final Identifier name : names) {
+				for(int i = 0; i < childNames.length; i++) {
+					if(childNames[i].equals(name)) {
+						found += i;
+						break;
+					}
+				}
+			}
+		});
+		Benchmark.time(memberCount + " members, getOrdinal()", ITERATIONS, () -> {
+			for(final Identifier name : names) {
+				found += rule.getOrdinal(name);
+			}
+		});
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import java.io.*;
+import java.util.*;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.Advisory;
+import com.inexas.oak.dialect.*;
+import com.inexas.oak.examples.Email;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+/**
+ * Compare the ways of getting a Rulebase at startup: compiling a .dialect
+ * file, running the static initializer of a generated dialect class and
+ * reading a RulebaseSnapshot.
+ *
+ * The cold start figures are measured in a new JVM for each, the time from
+ * the start of main() until the Rulebase is available. The warm figures
+ * compare rebuilding the rules as the generated class does with reading the
+ * snapshot once everything is loaded and compiled.
+ */
+public class RulebaseSnapshotBenchmark {
+	private final static int ITERATIONS = 20_000;
+
+	public static void main(String[] args) throws Exception {
+		if(args.length == 2) {
+			cold(args[0], new File(args[1]));
+		} else {
+			final File snapshot = File.createTempFile("benchmark", ".rulebase");
+			try {
+				try(final OutputStream out = new FileOutputStream(snapshot)) {
+					RulebaseSnapshot.write(PersonDialect.rulebase, out);
+				}
+				System.out.printf("Snapshot of PersonDialect: %d bytes%n", new Long(snapshot.length()));
+
+				System.out.println("Cold start:");
+				fork("dialect", snapshot);
+				fork("generated", snapshot);
+				fork("snapshot", snapshot);
+
+				System.out.println("Warm:");
+				warm(snapshot);
+			} finally {
+				snapshot.delete();
+			}
+		}
+	}
+
+	private static void fork(String mode, File snapshot) throws Exception {
+		final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		final List<String> command = new ArrayList<>();
+		command.add(java);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(RulebaseSnapshotBenchmark.class.getName());
+		command.add(mode);
+		command.add(snapshot.getPath());
+		final Process process = new ProcessBuilder(command).inheritIO().start();
+		if(process.waitFor() != 0) {
+			System.out.printf("  %-10s failed%n", mode);
+		}
+	}
+
+	private static void cold(String mode, File snapshot) throws Exception {
+		final long start = System.nanoTime();
+		final Rulebase rulebase;
+		switch(mode) {
+		case "dialect":
+			rulebase = new Oak(new File("resources/Person.dialect")).toDialect();
+			break;
+
+		case "generated":
+			rulebase = PersonDialect.rulebase;
+			break;
+
+		default:
+			try(final InputStream in = new FileInputStream(snapshot)) {
+				rulebase = RulebaseSnapshot.read(in);
+			}
+		}
+		final long time = System.nanoTime() - start;
+
+		System.out.printf("  %-10s %8.2f ms (%d rules)%n",
+				mode,
+				new Double(time / 1e6),
+				new Integer(rulebase.rules.length));
+	}
+
+	private static void warm(File snapshot) throws Exception {
+		final byte[] bytes;
+		try(final InputStream in = new FileInputStream(snapshot)) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while((read = in.read(buffer)) > 0) {
+				out.write(buffer, 0, read);
+			}
+			bytes = out.toByteArray();
+		}
+
+		final Advisory advisory = new Advisory("Benchmark");
+		TadContext.pushAttach(advisory);
+		try {
+			Benchmark.time("Rules built by setRelationships()", ITERATIONS, () -> {
+				build();
+			});
+			Benchmark.time("RulebaseSnapshot.read()", ITERATIONS, () -> {
+				RulebaseSnapshot.read(new ByteArrayInputStream(bytes));
+			});
+		} finally {
+			TadContext.detach(advisory);
+		}
+	}
+
+	/**
+	 * Build the rules as PersonDialect's static initializer does.
+	 */
+	private static Rulebase build() throws Exception {
+		final ObjectRule email = new ObjectRule(new Identifier("Email"), Email.class, false);
+		final ObjectRule person = new ObjectRule(new Identifier("Person"), Person.class, true);
+		final PropertyRule isHome = new PropertyRule(new Identifier("isHome"), DataType.bool);
+		final PropertyRule text = new PropertyRule(new Identifier("text"), DataType.text);
+		final PropertyRule userId = new PropertyRule(new Identifier("userId"), DataType.identifier);
+		email.setRelationships(
+				new Relationship(text, Cardinality.newInstance("1..1"), CollectionType.singleton),
+				new Relationship(isHome, Cardinality.newInstance("1..1"), CollectionType.singleton));
+		person.setRelationships(
+				new Relationship(userId, Cardinality.newInstance("1..1"), CollectionType.singleton),
+				new Relationship(email, Cardinality.newInstance("0..*"), CollectionType.list));
+		return new Rulebase(new Identifier("Dialect"), new ObjectRule[] { email, person });
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Inexas. All Rights Reserved. DO NOT ALTER OR
+ * REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is provided as-is without warranty of merchantability or fitness for a
+ * particular purpose.
+ *
+ * See http://www.inexas.com/license for license details.
+ */
+
+package com.inexas.oak.benchmark;
+
+import com.inexas.oak.OakReader;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+
+/**
+ * Measure the cost of turning OakReader events into template objects:
+ * template objects built per second and the bytes allocated per document, a
+ * Person with 1,000 Emails.
+ */
+public class TemplateTreeBenchmark {
+	private final static int EMAILS = 1_000;
+	private final static int ITERATIONS = 200;
+
+	public static void main(String[] args) throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Person {\n\tuserId: john;\n\tEmail [");
+		for(int i = 0; i < EMAILS; i++) {
+			sb.append(i > 0 ? "," : "");
+			sb.append("{\n\t\ttext: \"john" + i + "@example.com\";\n");
+			sb.append("\t\tisHome: " + (i % 2 == 0) + ";\n\t}");
+		}
+		sb.append("]\n}\n");
+		final String document = sb.toString();
+
+		final Benchmark.Task task = () -> {
+			try(final OakReader reader = new OakReader(document)) {
+				final Person person = reader.toObjectTree(PersonDialect.rulebase);
+				if(person.emails.size() != EMAILS) {
+					throw new RuntimeException("Wrong number of emails");
+				}
+			}
+		};
+		final double time = Benchmark.time("OakReader.toObjectTree()", ITERATIONS, task);
+		Benchmark.allocated("OakReader.toObjectTree()", ITERATIONS, task);
+		System.out.printf("%-40s %12.0f objects/s%n",
+				"Template objects",
+				new Double((EMAILS + 1) * 1e9 / time));
+	}
+}
@@ -96,4 +96,92 @@ public class TestConstraints {
 				constraint.toString());
 	}
 
+	@Test
+	public void testRegexAlternatives() {
+		final Constraint constraint = new RegexConstraint((Object)"[a-z]+", "[0-9]+", "x|y");
+		constraint.validate("abc");
+		constraint.validate("123");
+		constraint.validate("y");
+		assertNull(getFirstMessage());
+		constraint.validate("abc123");
+		assertTrue(getFirstMessage().indexOf("Invalid value") >= 0);
+	}
+
+	@Test
+	public void testRegexBackReference() {
+		final Constraint constraint = new RegexConstraint((Object)"b+", "(a)\\1");
+		constraint.validate("aa");
+		constraint.validate("bbb");
+		assertNull(getFirstMessage());
+		constraint.validate("ab");
+		assertTrue(getFirstMessage().indexOf("Invalid value") >= 0);
+	}
+
+	@Test
+	public void testRegexNotCombinable() {
+		// \Q would quote the rest of an alternation, a (?x) comment comment it out
+		final Constraint quoted = new RegexConstraint((Object[])new String[] { "\\Qa.b", "x+" });
+		quoted.validate("a.b");
+		quoted.validate("xx");
+		final Constraint extended = new RegexConstraint((Object[])new String[] { "(?x) a b # letters", "[0-9]+" });
+		extended.validate("ab");
+		extended.validate("123");
+		assertNull(getFirstMessage());
+		quoted.validate("axb");
+		assertTrue(getFirstMessage().indexOf("Invalid value") >= 0);
+	}
+
+	@Test
+	public void testRegexObjectValues() {
+		new RegexConstraint((Object)"a(", "b");
+		assertTrue(getFirstMessage().indexOf("Error compiling") >= 0);
+	}
+
+	@Test
+	public void testChoice() {
+		final Constraint constraint = new ChoiceConstraint("\"a\"", "\"b\"", "null");
+		constraint.validate("a");
+		constraint.validate("b");
+		constraint.validate((Object)null);
+		assertNull(getFirstMessage());
+		constraint.validate("c");
+		final String message = getFirstMessage();
+		assertTrue(message.indexOf("Invalid value for choice constraint: 'c'") >= 0);
+		assertTrue(message.indexOf("should have been one of: [") > 0);
+	}
+
+	@Test
+	public void testChoiceManyOptions() {
+		final Object[] options = new Object[5000];
+		for(int i = 0; i < options.length; i++) {
+			options[i] = new Long(i * 3);
+		}
+		final Constraint constraint = new ChoiceConstraint(options);
+		for(int i = 0; i < options.length; i++) {
+			constraint.validate(new Long(i * 3));
+		}
+		assertNull(getFirstMessage());
+		constraint.validate(new Long(4));
+		assertTrue(getFirstMessage().indexOf("Invalid value") >= 0);
+	}
+
+	@Test
+	public void testChoiceTooFewOptions() {
+		new ChoiceConstraint("\"a\"");
+		assertTrue(getFirstMessage().indexOf("at least two options") >= 0);
+	}
+
+	@Test
+	public void testChoiceNoOptions() {
+		final Constraint constraint = new ChoiceConstraint((String[])null);
+		assertTrue(getFirstMessage().indexOf("at least two options") >= 0);
+		constraint.validate("a");
+		assertEquals(2, advisory.getErrorCount());
+	}
+
+	@Test
+	public void testChoiceObjectTooFewOptions() {
+		new ChoiceConstraint(new Object[] { "a" });
+		assertTrue(getFirstMessage().indexOf("at least two options") >= 0);
+	}
 }
@@ -0,0 +1,106 @@
+package com.inexas.oak.dialect;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import org.junit.*;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+public class TestObjectFactory {
+	private Advisory advisory;
+
+	@Before
+	public void before() {
+		advisory = new Advisory("Unit test");
+		TadContext.attach(advisory);
+	}
+
+	@After
+	public void after() {
+		TadContext.detach(advisory);
+		advisory = null;
+	}
+
+	private ObjectRule newRule() {
+		final ObjectRule result = new ObjectRule(new Identifier("O"), TestObject.class, true);
+		result.setRelationships(
+				new Relationship(
+						new PropertyRule(new Identifier("p"), DataType.identifier),
+						Cardinality.newInstance("1..1"),
+						CollectionType.singleton),
+				new Relationship(
+						new PropertyRule(new Identifier("q"), DataType.identifier),
+						Cardinality.newInstance("1..1"),
+						CollectionType.singleton));
+		return result;
+	}
+
+	@Test
+	public void testGeneratedFactories() throws Exception {
+		for(final ObjectRule rule : PersonDialect.rulebase.rules) {
+			assertNotNull(rule.getFactory());
+		}
+
+		// A snapshot has no factories so constructs through a MethodHandle
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RulebaseSnapshot.write(PersonDialect.rulebase, out);
+		final Rulebase reflective = RulebaseSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+		assertNull(reflective.rules[0].getFactory());
+
+		final String john = "Person { userId: john; Email [{ text: \"a@b.com\"; isHome: true; }] }";
+		final Person expected = new Oak(john).toObjectTree(reflective);
+		final Person person = new Oak(john).toObjectTree(PersonDialect.rulebase);
+		assertEquals(expected.toString(), person.toString());
+	}
+
+	@Test
+	public void testDialectText() {
+		final String text = PersonDialect.rulebase.getDialectText("com.inexas.oak.examples");
+		assertTrue(text.indexOf("_Email.setFactory(p -> new com.inexas.oak.examples.Email(") > 0);
+		assertTrue(text.indexOf("(java.util.List<com.inexas.oak.examples.Email>)p[1]));") > 0);
+		assertTrue(text.indexOf("@SuppressWarnings(\"unchecked\")") > 0);
+	}
+
+	@Test
+	public void testHandleConstruction() throws Exception {
+		final ObjectRule rule = newRule();
+		assertNull(rule.getFactory());
+		final TestObject object = (TestObject)rule.construct(
+				new Object[] { new Identifier("a"), new Identifier("b") });
+		assertEquals("a", object.p);
+		assertEquals("b", object.q);
+
+		// Exceptions from the constructor and wrong parameter types
+		for(final Object[] parameters : new Object[][] {
+				{ null, new Identifier("b") },
+				{ "a", new Identifier("b") } }) {
+			try {
+				rule.construct(parameters);
+				fail();
+			} catch(final OakRuntimeException e) {
+				assertTrue(e.getMessage().startsWith("Error constructing O"));
+			}
+		}
+	}
+
+	@Test
+	public void testFactoryUsed() throws Exception {
+		final ObjectRule rule = newRule();
+		final TestObject object = new TestObject(new Identifier("a"), new Identifier("b"));
+		rule.setFactory(p -> object);
+		assertSame(object, rule.construct(new Object[] { null, null }));
+	}
+
+	@Test(expected = OakRuntimeException.class)
+	public void testFactoryException() throws Exception {
+		final ObjectRule rule = newRule();
+		rule.setFactory(p -> {
+			throw new OakConstructorException("Bad");
+		});
+		rule.construct(new Object[] { new Identifier("a"), new Identifier("b") });
+	}
+}
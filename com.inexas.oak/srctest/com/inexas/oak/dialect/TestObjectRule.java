@@ -0,0 +1,73 @@
+package com.inexas.oak.dialect;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+public class TestObjectRule {
+	private Advisory advisory;
+
+	@Before
+	public void before() {
+		advisory = new Advisory("Unit test");
+		TadContext.attach(advisory);
+	}
+
+	@After
+	public void after() {
+		TadContext.detach(advisory);
+		advisory = null;
+	}
+
+	private Relationship newRelationship(String name) {
+		return new Relationship(
+				new PropertyRule(new Identifier(name), DataType.identifier),
+				Cardinality.newInstance("1..1"),
+				CollectionType.singleton);
+	}
+
+	@Test
+	public void testOrdinals() {
+		final ObjectRule person = PersonDialect.rulebase.rules[1];
+		assertEquals(0, person.getOrdinal(new Identifier("userId")));
+		assertEquals(1, person.getOrdinal(new Identifier("Email")));
+		assertEquals(-1, person.getOrdinal(new Identifier("userid")));
+		assertSame(person.getRelationships()[1], person.getRelationship(new Identifier("Email")));
+		assertNull(person.getRelationship(new Identifier("Phone")));
+	}
+
+	@Test
+	public void testManyRelationships() {
+		// More than the template class takes so the missing constructor
+		// is reported but the index must still be built
+		final String[] names = new String[80];
+		final Relationship[] relationships = new Relationship[names.length];
+		for(int i = 0; i < names.length; i++) {
+			// Anagrams so some hash codes collide
+			names[i] = i % 2 == 0 ? "ab" + i : "ba" + i;
+			relationships[i] = newRelationship(names[i]);
+		}
+		final ObjectRule rule = new ObjectRule(new Identifier("O"), TestObject.class, true);
+		rule.setRelationships(relationships);
+		assertTrue(advisory.hasErrors());
+
+		for(int i = 0; i < names.length; i++) {
+			final Identifier name = new Identifier(names[i]);
+			assertEquals(i, rule.getOrdinal(name));
+			assertSame(relationships[i], rule.getRelationship(name));
+		}
+		assertEquals(-1, rule.getOrdinal(new Identifier("ab1")));
+		assertEquals(-1, rule.getOrdinal(new Identifier("x")));
+	}
+
+	@Test
+	public void testNoIndexBeforeRelationships() {
+		final ObjectRule rule = new ObjectRule(new Identifier("O"), TestObject.class, true);
+		assertEquals(-1, rule.getOrdinal(new Identifier("p")));
+		assertNull(rule.getRelationship(new Identifier("p")));
+	}
+}
@@ -0,0 +1,147 @@
+package com.inexas.oak.dialect;
+
+import static org.junit.Assert.*;
+import java.io.*;
+import java.math.*;
+import java.time.*;
+import org.junit.*;
+import com.inexas.oak.*;
+import com.inexas.oak.advisory.*;
+import com.inexas.oak.examples.Person;
+import com.inexas.oak.examples.PersonDialect;
+import com.inexas.oak.template.Constraint;
+import com.inexas.tad.TadContext;
+import com.inexas.util.Cardinality;
+
+public class TestRulebaseSnapshot {
+	private Advisory advisory;
+
+	@Before
+	public void before() {
+		advisory = new Advisory("Unit test");
+		TadContext.attach(advisory);
+	}
+
+	@After
+	public void after() {
+		TadContext.detach(advisory);
+		advisory = null;
+	}
+
+	private Rulebase roundTrip(Rulebase rulebase) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RulebaseSnapshot.write(rulebase, out);
+		return RulebaseSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private void assertSameRules(Rulebase expected, Rulebase actual) {
+		assertEquals(expected.name, actual.name);
+		assertEquals(expected.rules.length, actual.rules.length);
+		for(int i = 0; i < expected.rules.length; i++) {
+			final ObjectRule expectedRule = expected.rules[i];
+			final ObjectRule actualRule = actual.rules[i];
+			assertEquals(expectedRule.toString(), actualRule.toString());
+			assertEquals(expectedRule.hasFactoryMethod(), actualRule.hasFactoryMethod());
+			assertArrayEquals(
+					expectedRule.getConstructorParameterTypes(),
+					actualRule.getConstructorParameterTypes());
+			assertArrayEquals(expectedRule.getChildNames(), actualRule.getChildNames());
+			final Relationship[] expectedRelationships = expectedRule.getRelationships();
+			final Relationship[] actualRelationships = actualRule.getRelationships();
+			assertEquals(expectedRelationships.length, actualRelationships.length);
+			for(int j = 0; j < expectedRelationships.length; j++) {
+				assertEquals(expectedRelationships[j].toString(), actualRelationships[j].toString());
+				assertEquals(expectedRelationships[j].collection, actualRelationships[j].collection);
+				assertEquals(expectedRelationships[j].subject.toString(), actualRelationships[j].subject.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testPersonDialect() throws Exception {
+		final Rulebase rulebase = roundTrip(PersonDialect.rulebase);
+		assertSameRules(PersonDialect.rulebase, rulebase);
+
+		final String john = "Person { userId: john; Email [{ text: \"a@b.com\"; isHome: true; }] }";
+		final Person expected = new Oak(john).toObjectTree(PersonDialect.rulebase);
+		final Person person = new Oak(john).toObjectTree(rulebase);
+		assertEquals(expected.toString(), person.toString());
+	}
+
+	@Test
+	public void testConstraints() throws Exception {
+		final PropertyRule p = new PropertyRule(
+				new Identifier("p"),
+				DataType.identifier,
+				Constraint.newConstraint(
+						new Identifier(ChoiceConstraint.KEY),
+						new Identifier("a"), new Identifier("b"), null));
+		final PropertyRule q = new PropertyRule(
+				new Identifier("q"),
+				DataType.identifier);
+		final ObjectRule object = new ObjectRule(new Identifier("O"), TestObject.class, true);
+		object.setRelationships(
+				new Relationship(p, Cardinality.newInstance("1..1"), CollectionType.singleton),
+				new Relationship(q, Cardinality.newInstance("1..1"), CollectionType.singleton));
+		final Rulebase expected = new Rulebase(new Identifier("Test"), new ObjectRule[] { object });
+		assertFalse(advisory.hasErrors());
+
+		final Rulebase rulebase = roundTrip(expected);
+		assertSameRules(expected, rulebase);
+		final PropertyRule property = (PropertyRule)rulebase.rules[0].getRelationships()[0].subject;
+		assertEquals(1, property.constraints.length);
+		assertArrayEquals(p.constraints[0].values, property.constraints[0].values);
+		assertFalse(advisory.hasErrors());
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		final Object[] values = {
+				null,
+				"abc",
+				new Integer(1),
+				new Long(2L),
+				new BigInteger("12345678901234567890"),
+				new Float(3.5f),
+				new Double(4.25),
+				new BigDecimal("5.125"),
+				Boolean.TRUE,
+				new Identifier("id"),
+				Path.parse("/a/b"),
+				Cardinality.newInstance("1..*"),
+				LocalDate.of(2015, 1, 2),
+				LocalTime.of(3, 4, 5),
+				LocalDateTime.of(2015, 1, 2, 3, 4, 5) };
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(final DataOutputStream out = new DataOutputStream(bytes)) {
+			for(final Object value : values) {
+				RulebaseSnapshot.writeValue(out, value);
+			}
+		}
+
+		try(final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			for(final Object expected : values) {
+				final Object actual = RulebaseSnapshot.readValue(in);
+				if(expected == null) {
+					assertNull(actual);
+				} else {
+					// Path doesn't implement equals() so compare the String forms
+					assertEquals(expected.getClass(), actual.getClass());
+					assertEquals(expected.toString(), actual.toString());
+				}
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownValueType() throws IOException {
+		RulebaseSnapshot.writeValue(new DataOutputStream(new ByteArrayOutputStream()), new Object());
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotASnapshot() throws IOException {
+		RulebaseSnapshot.read(new ByteArrayInputStream("Dialect {}".getBytes()));
+	}
+}
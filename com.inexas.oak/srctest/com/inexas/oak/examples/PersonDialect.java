@@ -7,6 +7,7 @@ import com.inexas.oak.*;
 import com.inexas.oak.dialect.*;
 import com.inexas.util.Cardinality;
 
+@SuppressWarnings("unchecked")
 public class PersonDialect {
 	public static Rulebase rulebase;
 
@@ -50,6 +51,14 @@ public class PersonDialect {
 					relate(_Person_userId, Cardinality.newInstance("1..1"), singleton),
 					relate(_Email, Cardinality.newInstance("0..*"), list));
 
+			_Email.setFactory(p -> new com.inexas.oak.examples.Email(
+					(java.lang.String)p[0],
+					(java.lang.Boolean)p[1]));
+
+			_Person.setFactory(p -> new com.inexas.oak.examples.Person(
+					(com.inexas.oak.Identifier)p[0],
+					(java.util.List<com.inexas.oak.examples.Email>)p[1]));
+
 			setRules(_Email,_Person);
 		} catch(final Exception e) {
 			throw new RuntimeException("Error building PersonDialect", e);